@@ -1,30 +1,34 @@
 package com.quant.backend.ai;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.Base64;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
 
 @Component
 public class ClaudeClient {
 
-    private final RestTemplate restTemplate;
-    private final String apiKey;
+    private static final String MESSAGES_PATH = "/v1/messages";
+    private static final String MODEL = "claude-3-haiku-20240307";
+    private static final int MAX_TOKENS = 4096;
+
+    private final ClaudeTransport transport;
     private final ObjectMapper objectMapper;
 
-    public ClaudeClient() {
-        this.apiKey = System.getenv("ANTHROPIC_API_KEY");
+    public ClaudeClient(ClaudeTransport transport) {
+        this.transport = transport;
         this.objectMapper = new ObjectMapper();
-        this.restTemplate = new RestTemplate();
     }
 
     public boolean isConfigured() {
-        return apiKey != null && !apiKey.isEmpty();
+        return transport.isConfigured();
     }
 
     public String complete(String prompt) {
@@ -36,18 +40,7 @@ public class ClaudeClient {
         try {
             String requestBody = buildTextRequestBody(prompt);
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("x-api-key", apiKey != null ? apiKey : "");
-            headers.set("anthropic-version", "2023-06-01");
-
-            HttpEntity<String> entity = new HttpEntity<>(requestBody, headers);
-
-            String responseJson = restTemplate.postForObject(
-                    "https://api.anthropic.com/v1/messages",
-                    entity,
-                    String.class
-            );
+            String responseJson = transport.postJson(MESSAGES_PATH, requestBody);
 
             if (responseJson == null) {
                 System.err.println("ClaudeClient: Received null response");
@@ -56,35 +49,79 @@ public class ClaudeClient {
 
             return parseResponse(responseJson);
         } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
             System.err.println("ClaudeClient error: " + e.getMessage());
             e.printStackTrace();
             return null;
         }
     }
 
-    public String completeWithImage(String prompt, byte[] imageBytes, String mediaType) {
+    /**
+     * Som complete, men med stream=true: hver tekstbit sendes til onText etter hvert som modellen
+     * skriver den. Returnerer hele teksten til slutt (null ved feil). Unntak fra onText
+     * (f.eks. at klienten har koblet fra) kastes videre og avbryter kallet.
+     */
+    public String completeStreaming(String prompt, Consumer<String> onText) {
         if (!isConfigured()) {
             System.err.println("ClaudeClient: ANTHROPIC_API_KEY not configured");
             return null;
         }
 
+        StringBuilder text = new StringBuilder();
         try {
-            String normalizedMediaType = normalizeMediaType(mediaType, imageBytes);
-            System.out.println("ClaudeClient image mediaType input=" + mediaType + ", normalized=" + normalizedMediaType);
-            String requestBody = buildImageRequestBody(prompt, imageBytes, normalizedMediaType);
+            transport.postJsonForEvents(MESSAGES_PATH, buildStreamingTextRequestBody(prompt), (event, data) -> {
+                String delta = parseStreamEvent(event, data);
+                if (delta != null && !delta.isEmpty()) {
+                    text.append(delta);
+                    try {
+                        onText.accept(delta);
+                    } catch (RuntimeException e) {
+                        throw new ConsumerFailure(e);
+                    }
+                }
+            });
+        } catch (ConsumerFailure e) {
+            throw e.cause;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            System.err.println("ClaudeClient streaming error: " + e.getMessage());
+            return null;
+        }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("x-api-key", apiKey != null ? apiKey : "");
-            headers.set("anthropic-version", "2023-06-01");
+        return text.length() > 0 ? text.toString() : null;
+    }
 
-            HttpEntity<String> entity = new HttpEntity<>(requestBody, headers);
+    // Skiller feil fra mottakeren fra feil i selve kallet
+    private static final class ConsumerFailure extends RuntimeException {
+        final RuntimeException cause;
 
-            String responseJson = restTemplate.postForObject(
-                    "https://api.anthropic.com/v1/messages",
-                    entity,
-                    String.class
-            );
+        ConsumerFailure(RuntimeException cause) {
+            super(cause);
+            this.cause = cause;
+        }
+    }
+
+    /**
+     * Bildet leses fra image og base64-kodes rett inn i forespørselen mens den sendes, så verken
+     * bildet eller base64-teksten trenger å ligge i minnet i sin helhet. image må kunne åpnes mer
+     * enn én gang (første gang bare for å sniffe formatet).
+     */
+    public String completeWithImage(String prompt, InputStreamSource image, String mediaType) {
+        if (!isConfigured()) {
+            System.err.println("ClaudeClient: ANTHROPIC_API_KEY not configured");
+            return null;
+        }
+
+        try {
+            String normalizedMediaType = normalizeMediaType(mediaType, readHeader(image));
+            System.out.println("ClaudeClient image mediaType input=" + mediaType + ", normalized=" + normalizedMediaType);
+
+            String responseJson = transport.postJson(MESSAGES_PATH,
+                    out -> writeImageRequestBody(out, prompt, image, normalizedMediaType));
 
             if (responseJson == null) {
                 System.err.println("ClaudeClient: Received null response");
@@ -93,36 +130,72 @@ public class ClaudeClient {
 
             return parseResponse(responseJson);
         } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
             System.err.println("ClaudeClient image error: " + e.getMessage());
             e.printStackTrace();
             return null;
         }
     }
 
-    private String buildTextRequestBody(String prompt) {
-        return String.format(
-                "{\"model\":\"claude-3-haiku-20240307\",\"max_tokens\":4096,\"messages\":[{\"role\":\"user\",\"content\":\"%s\"}]}",
-                escapeJson(prompt)
-        );
+    private String buildTextRequestBody(String prompt) throws IOException {
+        return objectMapper.writeValueAsString(textRequest(prompt));
+    }
+
+    private String buildStreamingTextRequestBody(String prompt) throws IOException {
+        return objectMapper.writeValueAsString(textRequest(prompt).put("stream", true));
     }
 
-    private String buildImageRequestBody(String prompt, byte[] imageBytes, String mediaType) {
-        String base64Image = Base64.getEncoder().encodeToString(imageBytes);
+    private ObjectNode textRequest(String prompt) {
+        ObjectNode request = objectMapper.createObjectNode()
+                .put("model", MODEL)
+                .put("max_tokens", MAX_TOKENS);
+        request.putArray("messages").addObject()
+                .put("role", "user")
+                .put("content", prompt);
+        return request;
+    }
 
-        return String.format(
-                "{\"model\":\"claude-3-haiku-20240307\",\"max_tokens\":4096,\"messages\":[{\"role\":\"user\",\"content\":[{\"type\":\"image\",\"source\":{\"type\":\"base64\",\"media_type\":\"%s\",\"data\":\"%s\"}},{\"type\":\"text\",\"text\":\"%s\"}]}]}",
-                escapeJson(mediaType),
-                base64Image,
-                escapeJson(prompt)
-        );
+    private void writeImageRequestBody(OutputStream out, String prompt, InputStreamSource image, String mediaType)
+            throws IOException {
+        try (JsonGenerator g = objectMapper.getFactory().createGenerator(out);
+             InputStream in = image.getInputStream()) {
+            g.writeStartObject();
+            g.writeStringField("model", MODEL);
+            g.writeNumberField("max_tokens", MAX_TOKENS);
+            g.writeArrayFieldStart("messages");
+            g.writeStartObject();
+            g.writeStringField("role", "user");
+            g.writeArrayFieldStart("content");
+
+            g.writeStartObject();
+            g.writeStringField("type", "image");
+            g.writeObjectFieldStart("source");
+            g.writeStringField("type", "base64");
+            g.writeStringField("media_type", mediaType);
+            g.writeFieldName("data");
+            g.writeBinary(in, -1);
+            g.writeEndObject();
+            g.writeEndObject();
+
+            g.writeStartObject();
+            g.writeStringField("type", "text");
+            g.writeStringField("text", prompt);
+            g.writeEndObject();
+
+            g.writeEndArray();
+            g.writeEndObject();
+            g.writeEndArray();
+            g.writeEndObject();
+        }
     }
 
-    private String escapeJson(String input) {
-        return input.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t");
+    // Nok til detectMediaTypeFromBytes
+    private byte[] readHeader(InputStreamSource image) throws IOException {
+        try (InputStream in = image.getInputStream()) {
+            return in.readNBytes(12);
+        }
     }
 
     private String normalizeMediaType(String mediaType, byte[] imageBytes) {
@@ -198,6 +271,30 @@ public class ClaudeClient {
         return null;
     }
 
+    // Messages-strømmen: tekst kommer i content_block_delta/text_delta; "error" avbryter
+    private String parseStreamEvent(String event, String data) {
+        if (data == null || data.isEmpty()) {
+            return null;
+        }
+        try {
+            JsonNode root = objectMapper.readTree(data);
+            String type = event != null ? event : root.path("type").asText();
+
+            if ("error".equals(type)) {
+                throw new IllegalStateException("Claude stream error: " + root.path("error").path("message").asText());
+            }
+            if ("content_block_delta".equals(type)) {
+                JsonNode delta = root.path("delta");
+                if ("text_delta".equals(delta.path("type").asText())) {
+                    return delta.path("text").asText();
+                }
+            }
+            return null;
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            throw new IllegalStateException("Malformed stream event: " + e.getOriginalMessage());
+        }
+    }
+
     private String parseResponse(String responseJson) {
         try {
             JsonNode root = objectMapper.readTree(responseJson);
@@ -0,0 +1,39 @@
+package com.quant.backend.ai;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.BiConsumer;
+
+/**
+ * HTTP-laget under ClaudeClient. ClaudeClient bygger forespørslene og tolker svarene;
+ * transporten eier tilkoblinger, autentisering, timeouts og hvor mange kall som er i luften.
+ */
+public interface ClaudeTransport {
+
+    boolean isConfigured();
+
+    /**
+     * POST av en JSON-body til path (f.eks. "/v1/messages") under konfigurert base-url.
+     * Returnerer response-bodyen; ikke-2xx og timeouts gir IOException.
+     */
+    String postJson(String path, String jsonBody) throws IOException, InterruptedException;
+
+    /**
+     * For store bodies (bilder): body skrives rett inn i forespørselen mens den sendes, i stedet for
+     * å bygges som én String først. Kan kalles mer enn én gang hvis forespørselen må sendes på nytt.
+     */
+    String postJson(String path, BodyWriter body) throws IOException, InterruptedException;
+
+    @FunctionalInterface
+    interface BodyWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Som postJson, men for svar som text/event-stream: onEvent kalles med (event, data) per
+     * server-sent event mens svaret kommer. Unntak fra onEvent avbryter strømmen, og det samme gjør
+     * en upstream som slutter å sende uten å lukke (HttpTimeoutException).
+     */
+    void postJsonForEvents(String path, String jsonBody, BiConsumer<String, String> onEvent)
+            throws IOException, InterruptedException;
+}
@@ -0,0 +1,383 @@
+package com.quant.backend.ai;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Én delt java.net.http.HttpClient for alle Claude-kall: keep-alive og HTTP/2 (ALPN), så TLS
+ * settes opp én gang i stedet for per import. Timeouts begrenser hvor lenge en treg upstream
+ * kan holde en tråd, og en semafor (quant.ai.claude.max-in-flight) begrenser samtidige kall;
+ * venter et kall lenger enn acquire-timeout på plass, feiler det i stedet for å hope seg opp.
+ *
+ * quant.ai.claude.base-url kan pekes mot en lokal stub ved lasttesting.
+ *
+ * Store bodies (BodyWriter) skrives av en egen tråd inn i en pipe som HttpClient leser fra, så et
+ * bilde aldri ligger i minnet som én stor String; bare pipe-bufferet (PIPE_BUFFER_SIZE) gjør det.
+ *
+ * Strømmede svar leses også på en egen tråd, så kallet kan gi opp når det ikke har kommet en linje
+ * på stream-idle-timeout (request-timeout gjelder bare frem til headerne).
+ */
+@Component
+public class HttpClientClaudeTransport implements ClaudeTransport {
+
+    private static final String ANTHROPIC_VERSION = "2023-06-01";
+    private static final int PIPE_BUFFER_SIZE = 64 * 1024;
+    // Linjer lest fra strømmen som ikke er behandlet ennå
+    private static final int STREAM_QUEUE_CAPACITY = 256;
+    private static final Object END_OF_STREAM = new Object();
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final String apiKey;
+    private final Duration requestTimeout;
+    private final Duration acquireTimeout;
+    private final Duration streamIdleTimeout;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+
+    private final MeterRegistry meterRegistry;
+
+    // Antall skrivere er begrenset av semaforen: de startes bare av kall som har fått plass
+    private final ExecutorService bodyWriters;
+    // Som bodyWriters: én per strømmet kall som har fått plass
+    private final ExecutorService streamReaders;
+
+    public HttpClientClaudeTransport(MeterRegistry meterRegistry,
+                                     @Value("${quant.ai.claude.base-url:https://api.anthropic.com}") String baseUrl,
+                                     @Value("${quant.ai.claude.api-key:}") String apiKey,
+                                     @Value("${quant.ai.claude.connect-timeout:5s}") Duration connectTimeout,
+                                     @Value("${quant.ai.claude.request-timeout:60s}") Duration requestTimeout,
+                                     @Value("${quant.ai.claude.max-in-flight:8}") int maxInFlight,
+                                     @Value("${quant.ai.claude.acquire-timeout:10s}") Duration acquireTimeout,
+                                     @Value("${quant.ai.claude.stream-idle-timeout:30s}") Duration streamIdleTimeout) {
+        this.meterRegistry = meterRegistry;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.apiKey = apiKey;
+        this.requestTimeout = requestTimeout;
+        this.acquireTimeout = acquireTimeout;
+        this.streamIdleTimeout = streamIdleTimeout;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+
+        AtomicInteger writerNo = new AtomicInteger();
+        this.bodyWriters = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "claude-body-writer-" + writerNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger readerNo = new AtomicInteger();
+        this.streamReaders = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "claude-stream-reader-" + readerNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        Gauge.builder("quant.ai.claude.in-flight", inFlight, s -> this.maxInFlight - s.availablePermits())
+                .description("Claude requests currently in flight")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return apiKey != null && !apiKey.isEmpty();
+    }
+
+    @Override
+    public String postJson(String path, String jsonBody) throws IOException, InterruptedException {
+        return send(buildRequest(path, HttpRequest.BodyPublishers.ofString(jsonBody)));
+    }
+
+    @Override
+    public String postJson(String path, BodyWriter body) throws IOException, InterruptedException {
+        List<InputStream> pipes = new CopyOnWriteArrayList<>();
+        HttpRequest request = buildRequest(path, HttpRequest.BodyPublishers.ofInputStream(() -> {
+            InputStream pipe = pipe(body);
+            pipes.add(pipe);
+            return pipe;
+        }));
+
+        try {
+            return send(request);
+        } finally {
+            // Stenger lesesiden så en skriver som venter på plass i pipen ikke blir hengende
+            for (InputStream pipe : pipes) {
+                try {
+                    pipe.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private String send(HttpRequest request) throws IOException, InterruptedException {
+        acquire();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            int status = response.statusCode();
+            record(status / 100 == 2 ? "success" : "http_" + status, start);
+
+            if (status / 100 != 2) {
+                throw new IOException("Claude returned HTTP " + status + ": " + abbreviate(response.body()));
+            }
+            return response.body();
+        } catch (HttpTimeoutException e) {
+            record("timeout", start);
+            throw e;
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    // request-timeout gjelder frem til headerne er mottatt; deretter leses strømmen så lenge modellen
+    // skriver, men aldri lenger enn stream-idle-timeout mellom to linjer
+    @Override
+    public void postJsonForEvents(String path, String jsonBody, BiConsumer<String, String> onEvent)
+            throws IOException, InterruptedException {
+        HttpRequest request = buildRequest(path, HttpRequest.BodyPublishers.ofString(jsonBody));
+
+        acquire();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            int status = response.statusCode();
+
+            // Lukkes i omvendt rekkefølge: leseren avbrytes, så lukkes strømmen (og tilkoblingen),
+            // også når onEvent avbryter eller strømmen går stille
+            try (InputStream body = response.body();
+                 IdleTimeoutLines lines = new IdleTimeoutLines(body)) {
+                if (status / 100 != 2) {
+                    record("http_" + status, start);
+                    throw new IOException("Claude returned HTTP " + status + ": " + abbreviate(lines.readAll()));
+                }
+                readEvents(lines, onEvent);
+            }
+            record("success", start);
+        } catch (HttpTimeoutException e) {
+            record("timeout", start);
+            throw e;
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    // text/event-stream: "event:"- og "data:"-linjer, tom linje avslutter en event
+    private static void readEvents(IdleTimeoutLines lines, BiConsumer<String, String> onEvent)
+            throws IOException, InterruptedException {
+        String event = null;
+        StringBuilder data = new StringBuilder();
+
+        String line;
+        while ((line = lines.next()) != null) {
+            if (line.isEmpty()) {
+                if (event != null || data.length() > 0) {
+                    onEvent.accept(event, data.toString());
+                }
+                event = null;
+                data.setLength(0);
+            } else if (line.startsWith("event:")) {
+                event = line.substring(6).trim();
+            } else if (line.startsWith("data:")) {
+                if (data.length() > 0) data.append('\n');
+                String value = line.substring(5);
+                data.append(value.startsWith(" ") ? value.substring(1) : value);
+            }
+            // linjer som starter med ":" er kommentarer/keep-alive
+        }
+
+        if (event != null || data.length() > 0) {
+            onEvent.accept(event, data.toString());
+        }
+    }
+
+    // Linjene leses av en egen tråd inn i en kø; next() venter maks stream-idle-timeout på neste.
+    // close() avbryter leseren, som ellers kunne blitt stående i et read() som aldri returnerer.
+    private final class IdleTimeoutLines implements AutoCloseable {
+
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(STREAM_QUEUE_CAPACITY);
+        private final Future<?> reader;
+
+        IdleTimeoutLines(InputStream body) {
+            this.reader = streamReaders.submit(() -> {
+                Object last = END_OF_STREAM;
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        queue.put(line);
+                    }
+                } catch (IOException e) {
+                    last = e;
+                }
+                queue.put(last);
+                return null;
+            });
+        }
+
+        // null når strømmen er slutt
+        String next() throws IOException, InterruptedException {
+            Object item = queue.poll(streamIdleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (item == null) {
+                throw new HttpTimeoutException("Claude stream idle for more than " + streamIdleTimeout);
+            }
+            if (item == END_OF_STREAM) {
+                return null;
+            }
+            if (item instanceof IOException e) {
+                throw new IOException("Reading Claude stream failed: " + e.getMessage(), e);
+            }
+            return (String) item;
+        }
+
+        String readAll() throws IOException, InterruptedException {
+            StringBuilder all = new StringBuilder();
+            String line;
+            while ((line = next()) != null) {
+                if (all.length() > 0) all.append('\n');
+                all.append(line);
+            }
+            return all.toString();
+        }
+
+        @Override
+        public void close() {
+            reader.cancel(true);
+        }
+    }
+
+    private HttpRequest buildRequest(String path, HttpRequest.BodyPublisher body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .header("x-api-key", apiKey)
+                .header("anthropic-version", ANTHROPIC_VERSION)
+                .POST(body)
+                .build();
+    }
+
+    // Skriveren får en strøm den ikke kan lukke selv: vi lukker først når vi vet om den feilet,
+    // så HttpClient ser en feil i stedet for en avkortet (men "ferdig") body
+    private InputStream pipe(BodyWriter body) {
+        PipedInputStream in = new PipedInputStream(PIPE_BUFFER_SIZE);
+        PipedOutputStream out;
+        try {
+            out = new PipedOutputStream(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        FailableInputStream result = new FailableInputStream(in);
+
+        bodyWriters.execute(() -> {
+            try {
+                body.writeTo(new FilterOutputStream(out) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        flush();
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                result.failure = e;
+            } finally {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        });
+        return result;
+    }
+
+    private static final class FailableInputStream extends FilterInputStream {
+        volatile Exception failure;
+
+        FailableInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return checkEnd(super.read());
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return checkEnd(super.read(b, off, len));
+        }
+
+        private int checkEnd(int n) throws IOException {
+            if (n == -1 && failure != null) {
+                throw new IOException("Writing request body failed: " + failure.getMessage(), failure);
+            }
+            return n;
+        }
+    }
+
+    private void acquire() throws IOException, InterruptedException {
+        if (!inFlight.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            record("rejected", 0);
+            throw new IOException("Too many concurrent Claude requests (max " + maxInFlight + ")");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bodyWriters.shutdownNow();
+        streamReaders.shutdownNow();
+    }
+
+    private void record(String outcome, long startNanos) {
+        Timer.builder("quant.ai.claude.requests")
+                .description("Claude API calls by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(startNanos == 0 ? 0 : System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String abbreviate(String body) {
+        if (body == null) return "";
+        return body.length() <= 500 ? body : body.substring(0, 500) + "...";
+    }
+}
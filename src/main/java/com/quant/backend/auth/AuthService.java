@@ -3,11 +3,11 @@ package com.quant.backend.auth;
 import com.quant.backend.auth.dto.AuthResponse;
 import com.quant.backend.auth.dto.LoginRequest;
 import com.quant.backend.auth.dto.RegisterRequest;
+import com.quant.backend.entity.Ids;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
-import java.util.UUID;
 
 @Service
 public class AuthService {
@@ -50,7 +50,7 @@ public class AuthService {
         Instant now = Instant.now();
 
         UserEntity user = new UserEntity(
-                UUID.randomUUID().toString(),
+                Ids.newId(),
                 username,
                 email,
                 encoder.encode(password),
@@ -1,7 +1,9 @@
 package com.quant.backend.auth;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
@@ -12,7 +14,7 @@ import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 public class SecurityConfig {
 
     @Bean
-    SecurityFilterChain filterChain(HttpSecurity http, JwtService jwtService) throws Exception {
+    SecurityFilterChain filterChain(HttpSecurity http, JwtService jwtService, AdminAccess adminAccess) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
                 .httpBasic(h -> h.disable())
@@ -22,6 +24,9 @@ public class SecurityConfig {
                     JsonErrorWriter.write(response, 401, "unauthorized", "Missing or invalid authentication");
                 }))
                 .authorizeHttpRequests(auth -> auth
+                        // Eksporten (StreamingResponseBody) og SSE fullføres med en ASYNC-dispatch uten JWT-en;
+                        // requesten er allerede autorisert (se RecipeControllerExportTest)
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/api/auth/login",
                                 "/api/auth/register",
@@ -29,6 +34,12 @@ public class SecurityConfig {
                                 "/h2-console/**",
                                 "/debug/**"
                         ).permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        // metrikker/prometheus: kun admin
+                        .requestMatchers("/actuator/**").access((authentication, context) -> new AuthorizationDecision(
+                                authentication.get().getPrincipal() instanceof QuantPrincipal qp
+                                        && adminAccess.isAdminEmail(qp.email())
+                        ))
                         .anyRequest().authenticated()
                 )
 
@@ -1,7 +1,9 @@
 package com.quant.backend.auth;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserJpaRepository extends JpaRepository<UserEntity, String> {
@@ -10,4 +12,8 @@ public interface UserJpaRepository extends JpaRepository<UserEntity, String> {
     Optional<UserEntity> findByUsername(String username);
     boolean existsByUsername(String username);
 
+    // Keyset-paginering på id (debug-listen)
+    List<UserEntity> findAllByOrderByIdAsc(Limit limit);
+    List<UserEntity> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
 }
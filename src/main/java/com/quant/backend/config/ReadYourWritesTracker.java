@@ -0,0 +1,30 @@
+package com.quant.backend.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * Husker hvilke brukere som nettopp har skrevet, slik at lesingene deres går til primary
+ * til replikaen rimeligvis har tatt igjen (quant.datasource.replica.read-your-writes).
+ */
+public class ReadYourWritesTracker {
+
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesTracker(Duration window) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public void markWrite(String userId) {
+        recentWriters.put(userId, Boolean.TRUE);
+    }
+
+    public boolean recentlyWrote(String userId) {
+        return recentWriters.getIfPresent(userId) != null;
+    }
+}
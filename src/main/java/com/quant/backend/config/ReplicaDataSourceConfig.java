@@ -0,0 +1,75 @@
+package com.quant.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Primary + lese-replika, slått på med quant.datasource.replica.enabled=true.
+ *
+ * spring.datasource.* beskriver primary som før; quant.datasource.replica.* beskriver replikaen.
+ * Er det av, lager Spring Boot én vanlig DataSource som tidligere.
+ */
+@Configuration
+@ConditionalOnProperty(name = "quant.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource ds = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName("primary");
+        return ds;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${quant.datasource.replica.url}") String url,
+                                              @Value("${quant.datasource.replica.username:}") String username,
+                                              @Value("${quant.datasource.replica.password:}") String password,
+                                              @Value("${quant.datasource.replica.max-pool-size:10}") int maxPoolSize) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setPoolName("replica");
+        ds.setJdbcUrl(url);
+        // Samme bruker som primary hvis ikke annet er satt
+        ds.setUsername(username.isBlank() ? properties.determineUsername() : username);
+        ds.setPassword(username.isBlank() ? properties.determinePassword() : password);
+        ds.setDriverClassName(properties.determineDriverClassName());
+        ds.setMaximumPoolSize(maxPoolSize);
+        ds.setReadOnly(true);
+        return ds;
+    }
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(
+            @Value("${quant.datasource.replica.read-your-writes:5s}") Duration window) {
+        return new ReadYourWritesTracker(window);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReadYourWritesTracker tracker) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(tracker);
+        routing.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.Target.PRIMARY, primary,
+                ReplicaRoutingDataSource.Target.REPLICA, replica
+        ));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,79 @@
+package com.quant.backend.config;
+
+import com.quant.backend.auth.QuantPrincipal;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Sender readOnly-transaksjoner til replikaen og alt annet til primary.
+ *
+ * Må ligge bak en LazyConnectionDataSourceProxy: transaksjonsmanageren henter connection før
+ * readOnly-flagget er satt, så valget må utsettes til første faktiske statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target { PRIMARY, REPLICA }
+
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private final ReadYourWritesTracker tracker;
+
+    public ReplicaRoutingDataSource(ReadYourWritesTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    /**
+     * Kjører action med alle lesinger mot primary, også readOnly. For resultater som blir liggende
+     * (cacher): en replika som henger etter ville ellers blitt lagret i hele TTL-en.
+     * Uten replika er det bare et vanlig kall.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = FORCE_PRIMARY.get();
+        FORCE_PRIMARY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                FORCE_PRIMARY.remove();
+            } else {
+                FORCE_PRIMARY.set(previous);
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String userId = currentUserId();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // Skrivende transaksjon: brukerens lesinger går til primary en stund etter commit
+            if (userId != null && TransactionSynchronizationManager.isActualTransactionActive()
+                    && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        tracker.markWrite(userId);
+                    }
+                });
+            }
+            return Target.PRIMARY;
+        }
+
+        if (FORCE_PRIMARY.get() != null || (userId != null && tracker.recentlyWrote(userId))) {
+            return Target.PRIMARY;
+        }
+        return Target.REPLICA;
+    }
+
+    private static String currentUserId() {
+        var auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof QuantPrincipal qp) {
+            return qp.userId();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,23 @@
+package com.quant.backend.controller;
+
+import com.quant.backend.service.RecipeParseCache;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/parse-cache")
+public class AdminParseCacheController {
+
+    private final RecipeParseCache recipeParseCache;
+
+    public AdminParseCacheController(RecipeParseCache recipeParseCache) {
+        this.recipeParseCache = recipeParseCache;
+    }
+
+    public record InvalidateResponse(int removed) {}
+
+    // DELETE /api/admin/parse-cache (alt) eller ?mode=TEXT|IMAGE
+    @DeleteMapping
+    public InvalidateResponse invalidate(@RequestParam(required = false) String mode) {
+        return new InvalidateResponse(recipeParseCache.invalidate(mode));
+    }
+}
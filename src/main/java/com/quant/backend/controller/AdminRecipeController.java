@@ -0,0 +1,73 @@
+package com.quant.backend.controller;
+
+import com.quant.backend.dto.CursorPageDto;
+import com.quant.backend.repository.OwnedRecipe;
+import com.quant.backend.repository.RecipeAdminFilter;
+import com.quant.backend.service.AdminRecipeService;
+import com.quant.backend.service.AdminRecipeService.ExportFormat;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Admin-lesing på tvers av brukere. Filtre: owner (bruker-id), updatedFrom (inkl.), updatedTo (ekskl.).
+ */
+@RestController
+@RequestMapping("/api/admin/recipes")
+public class AdminRecipeController {
+
+    private final AdminRecipeService adminRecipeService;
+
+    public AdminRecipeController(AdminRecipeService adminRecipeService) {
+        this.adminRecipeService = adminRecipeService;
+    }
+
+    // GET /api/admin/recipes?owner=...&updatedFrom=2025-01-01T00:00:00&limit=100&cursor=...
+    @GetMapping
+    public CursorPageDto<OwnedRecipe> getRecipes(
+            @RequestParam(required = false) String owner,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedTo,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor
+    ) {
+        return adminRecipeService.getPage(new RecipeAdminFilter(owner, updatedFrom, updatedTo), cursor, limit);
+    }
+
+    // GET /api/admin/recipes/export?format=csv (standard: ndjson), samme filtre som over
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) String owner,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedTo,
+            @RequestParam(defaultValue = "ndjson") String format
+    ) {
+        ExportFormat exportFormat = parseFormat(format);
+        StreamingResponseBody body = adminRecipeService.export(
+                new RecipeAdminFilter(owner, updatedFrom, updatedTo), exportFormat);
+
+        boolean csv = exportFormat == ExportFormat.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"recipes." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
+
+    private static ExportFormat parseFormat(String format) {
+        try {
+            return ExportFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+    }
+}
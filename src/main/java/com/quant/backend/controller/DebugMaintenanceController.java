@@ -2,6 +2,8 @@ package com.quant.backend.controller;
 
 import com.quant.backend.auth.UserJpaRepository;
 import com.quant.backend.auth.UserEntity;
+import com.quant.backend.dto.CursorPageDto;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
@@ -40,11 +42,23 @@ public class DebugMaintenanceController {
         return "OK";
     }
 
+    // GET /debug/users?limit=100&after=<siste id fra forrige side>
     @GetMapping("/users")
-    public List<UserRow> listUsers() {
-        return userRepo.findAll().stream()
-                .map(u -> new UserRow(u.getId(), u.getEmail(), u.getUsername()))
-                .toList();
+    public CursorPageDto<UserRow> listUsers(@RequestParam(required = false) String after,
+                                            @RequestParam(required = false) Integer limit) {
+        int pageSize = limit == null || limit <= 0 ? 100 : Math.min(limit, 1000);
+
+        List<UserEntity> rows = after == null || after.isBlank()
+                ? userRepo.findAllByOrderByIdAsc(Limit.of(pageSize + 1))
+                : userRepo.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<UserEntity> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        return new CursorPageDto<>(
+                page.stream().map(u -> new UserRow(u.getId(), u.getEmail(), u.getUsername())).toList(),
+                hasMore ? page.get(page.size() - 1).getId() : null
+        );
     }
 
     public record ResetPasswordRequest(String email, String newPassword) {}
@@ -1,19 +1,35 @@
 package com.quant.backend.controller;
 
+import com.quant.backend.dto.BulkDeleteResultDto;
+import com.quant.backend.dto.BulkImportResultDto;
+import com.quant.backend.dto.CookWithMatchDto;
+import com.quant.backend.dto.CursorPageDto;
+import com.quant.backend.dto.RecipeChangesDto;
 import com.quant.backend.dto.ImportRecipeRequestDto;
 import com.quant.backend.dto.RecipeCoverImageRequest;
 import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.dto.RecipeFacetsDto;
 import com.quant.backend.dto.RecipeFavoriteRequest;
 import com.quant.backend.dto.RecipePinRequest;
+import com.quant.backend.dto.RecipeSummaryDto;
 
+import com.quant.backend.service.RecipeImportJobService;
 import com.quant.backend.service.RecipeService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -21,20 +37,112 @@ import java.util.List;
 public class RecipeController {
 
     private final RecipeService recipeService;
+    private final RecipeImportJobService importJobService;
 
-    public RecipeController(RecipeService recipeService) {
+    public RecipeController(RecipeService recipeService, RecipeImportJobService importJobService) {
         this.recipeService = recipeService;
+        this.importJobService = importJobService;
     }
 
+    // If-None-Match sjekkes mot et billig aggregat før noe lastes eller serialiseres.
+    // Admin får hele tabellen strømmet; bruk ?limit= for sider.
     @GetMapping
-    public List<RecipeDto> getAllRecipes() {
-        return recipeService.getAllRecipes();
+    public ResponseEntity<StreamingResponseBody> getAllRecipes(WebRequest webRequest) {
+        String etag = recipeService.getRecipesEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304 er allerede satt på responsen
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(recipeService.getAllRecipes());
+    }
+
+    // Keyset-paginert variant: GET /api/recipes?limit=50&cursor=...
+    @GetMapping(params = "limit")
+    public CursorPageDto<RecipeDto> getRecipePage(
+            @RequestParam Integer limit,
+            @RequestParam(required = false) String cursor
+    ) {
+        return recipeService.getRecipePage(cursor, limit);
+    }
+
+    // Lett listevisning uten ingredienser/steg/kategorier
+    @GetMapping("/summaries")
+    public ResponseEntity<StreamingResponseBody> getRecipeSummaries() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(recipeService.getRecipeSummaries());
+    }
+
+    @GetMapping(value = "/summaries", params = "limit")
+    public CursorPageDto<RecipeSummaryDto> getRecipeSummaryPage(
+            @RequestParam Integer limit,
+            @RequestParam(required = false) String cursor
+    ) {
+        return recipeService.getRecipeSummaryPage(cursor, limit);
+    }
+
+    // Hele samlingen som NDJSON (application/x-ndjson), strømmet uten å bygge listen i minnet
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRecipes() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"recipes.ndjson\"")
+                .body(recipeService.exportRecipesNdjson());
+    }
+
+    // Fulltekstsøk: GET /api/recipes/search?q=tomat%20basilikum, beste treff først
+    @GetMapping("/search")
+    public List<RecipeSummaryDto> searchRecipes(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return recipeService.searchRecipes(query, limit);
+    }
+
+    // GET /api/recipes/facets?q=pasta&favorite=true&category=middag
+    @GetMapping("/facets")
+    public RecipeFacetsDto getFacets(
+            @RequestParam(value = "q", required = false) String query,
+            @RequestParam(required = false) Boolean favorite,
+            @RequestParam(required = false) Boolean pinned,
+            @RequestParam(required = false) String category
+    ) {
+        return recipeService.getFacets(query, favorite, pinned, category);
+    }
+
+    public record CookWithRequest(List<String> ingredients, Integer limit, Integer maxMissing) {}
+
+    // POST /api/recipes/cook-with {"ingredients":["egg","løk","tomat"],"maxMissing":2}
+    @PostMapping("/cook-with")
+    public List<CookWithMatchDto> cookWith(@RequestBody CookWithRequest req) {
+        return recipeService.cookWith(req.ingredients(), req.limit(), req.maxMissing());
+    }
+
+    // Delta-synk: GET /api/recipes/changes?since=2025-01-01T12:00:00 (uten since = alt),
+    // deretter ?cursor=<nextCursor fra forrige svar>
+    @GetMapping("/changes")
+    public RecipeChangesDto getChanges(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return recipeService.getChangesSince(since, cursor, limit);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<RecipeDto> getRecipeById(@PathVariable String id) {
+    public ResponseEntity<RecipeDto> getRecipeById(@PathVariable String id, WebRequest webRequest) {
+        String etag = recipeService.getRecipeEtag(id).orElse(null);
+        if (etag == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304 er allerede satt på responsen
+        }
+
         return recipeService.getRecipeById(id)
-                .map(ResponseEntity::ok)
+                .map(recipe -> ResponseEntity.ok().eTag(etag).body(recipe))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -53,12 +161,32 @@ public class RecipeController {
         return ResponseEntity.notFound().build();
     }
 
+    // Mange oppskrifter i ett kall: JSON-array eller NDJSON, lagret i chunks med resultat per element
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public BulkImportResultDto bulkImport(InputStream body) throws IOException {
+        return recipeService.importRecipesBulk(body);
+    }
+
+    public record BulkDeleteRequest(List<String> ids) {}
+
+    // Sletter mange på én gang (maks 1000 id-er); andres/ukjente id-er havner i notFound
+    @PostMapping("/delete")
+    public BulkDeleteResultDto deleteRecipes(@RequestBody BulkDeleteRequest req) {
+        return recipeService.deleteRecipes(req.ids());
+    }
+
     @PostMapping("/import-text")
     public ResponseEntity<RecipeDto> importRecipeFromText(@RequestBody ImportRecipeRequestDto request) {
         RecipeDto recipe = recipeService.importRecipeFromText(request);
         return ResponseEntity.ok(recipe);
     }
 
+    // Samme som import-text, men som SSE: title, ingredient, step ... etter hvert, til slutt recipe
+    @PostMapping(value = "/import-text/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter importRecipeFromTextStreaming(@RequestBody ImportRecipeRequestDto request) {
+        return importJobService.streamText(request);
+    }
+
     @PostMapping(value = "/import-image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<RecipeDto> importRecipeFromImage(@RequestPart("image") MultipartFile image) {
         RecipeDto recipe = recipeService.importRecipeFromImage(image);
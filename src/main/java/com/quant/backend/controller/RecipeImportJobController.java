@@ -0,0 +1,57 @@
+package com.quant.backend.controller;
+
+import com.quant.backend.dto.ImportJobDto;
+import com.quant.backend.dto.ImportRecipeRequestDto;
+import com.quant.backend.service.RecipeImportJobService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.net.URI;
+
+// Asynkron variant av /api/recipes/import-*: 202 + jobb-id, deretter polling eller SSE
+@RestController
+@RequestMapping("/api/recipes/import-jobs")
+public class RecipeImportJobController {
+
+    private final RecipeImportJobService importJobService;
+
+    public RecipeImportJobController(RecipeImportJobService importJobService) {
+        this.importJobService = importJobService;
+    }
+
+    @PostMapping("/text")
+    public ResponseEntity<ImportJobDto> submitText(@RequestBody ImportRecipeRequestDto request) {
+        return accepted(importJobService.submitText(request));
+    }
+
+    @PostMapping(value = "/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportJobDto> submitImage(@RequestPart("image") MultipartFile image) {
+        return accepted(importJobService.submitImage(image));
+    }
+
+    @PostMapping(value = "/file", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportJobDto> submitFile(@RequestParam("file") MultipartFile file) {
+        return accepted(importJobService.submitFile(file));
+    }
+
+    // Polling: GET /api/recipes/import-jobs/{id}
+    @GetMapping("/{id}")
+    public ImportJobDto getJob(@PathVariable String id) {
+        return importJobService.getJob(id);
+    }
+
+    // SSE: én "stage"-event per overgang, strømmen lukkes ved DONE/FAILED
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable String id) {
+        return importJobService.subscribe(id);
+    }
+
+    private static ResponseEntity<ImportJobDto> accepted(ImportJobDto job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/recipes/import-jobs/" + job.getId()))
+                .body(job);
+    }
+}
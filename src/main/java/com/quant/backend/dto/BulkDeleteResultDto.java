@@ -0,0 +1,18 @@
+package com.quant.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDeleteResultDto {
+    private List<String> deleted = new ArrayList<>();
+
+    // finnes ikke, eller tilhører en annen bruker
+    private List<String> notFound = new ArrayList<>();
+}
@@ -0,0 +1,17 @@
+package com.quant.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportItemDto {
+    // posisjon i input (0-basert)
+    private int index;
+    private String id;
+    // CREATED | UPDATED | FAILED
+    private String status;
+    private String error;
+}
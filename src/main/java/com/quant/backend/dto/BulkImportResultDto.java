@@ -0,0 +1,24 @@
+package com.quant.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Svar på POST /api/recipes/bulk: ett element per oppskrift i input, i samme rekkefølge.
+ *
+ * Chunks lagres i hver sin transaksjon, så det som er CREATED/UPDATED er lagret selv om senere
+ * elementer feiler.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportResultDto {
+    private int created;
+    private int updated;
+    private int failed;
+    private List<BulkImportItemDto> items = new ArrayList<>();
+}
@@ -0,0 +1,13 @@
+package com.quant.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryCountDto {
+    private String category;
+    private long count;
+}
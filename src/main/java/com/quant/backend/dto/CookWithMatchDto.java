@@ -0,0 +1,24 @@
+package com.quant.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ett treff fra POST /api/recipes/cook-with.
+ *
+ * coverage = matched / total, der total er oppskriftens ulike ingredienser uten basisvarer.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CookWithMatchDto {
+    private RecipeSummaryDto recipe;
+    private int matched;
+    private int total;
+    private double coverage;
+    private List<String> missing = new ArrayList<>();
+}
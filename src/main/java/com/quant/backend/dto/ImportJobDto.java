@@ -0,0 +1,23 @@
+package com.quant.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobDto {
+    private String id;
+    // TEXT | IMAGE | FILE
+    private String kind;
+    // QUEUED | EXTRACTING | CALLING_MODEL | PARSING | DONE | FAILED
+    private String stage;
+    // satt når stage = DONE (ikke lagret, samme som de synkrone import-endepunktene)
+    private RecipeDto recipe;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,36 @@
+package com.quant.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Svar på GET /api/recipes/changes?since=...
+ *
+ * Klienten sender nextCursor som cursor i neste kall. Er hasMore satt, bør den kalle igjen med én gang.
+ * nextSince finnes for eldre klienter: det er et rent tidsstempel, så rader med samme updated_at
+ * kan komme flere ganger, og en side full av like tidsstempler kommer ikke videre.
+ * Er fullResyncRequired satt, er since eldre enn tombstone-retensjonen, og slettinger kan ha gått tapt;
+ * klienten bør da hente hele samlingen på nytt.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RecipeChangesDto {
+    @Builder.Default
+    private List<RecipeDto> upserted = new ArrayList<>();
+
+    @Builder.Default
+    private List<RecipeTombstoneDto> deleted = new ArrayList<>();
+
+    private LocalDateTime nextSince;
+    private String nextCursor;
+    private boolean hasMore;
+    private boolean fullResyncRequired;
+}
@@ -0,0 +1,23 @@
+package com.quant.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Svar på GET /api/recipes/facets: tellinger for filter-sidepanelet, innenfor gjeldende filter.
+ *
+ * categories er sortert på antall (flest først); en oppskrift telles én gang per kategori.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecipeFacetsDto {
+    private long total;
+    private long favorites;
+    private long pinned;
+    private List<CategoryCountDto> categories = new ArrayList<>();
+}
@@ -0,0 +1,31 @@
+package com.quant.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lett representasjon av en oppskrift for listevisninger.
+ *
+ * Fylles direkte fra en JPQL constructor-projeksjon, så feltrekkefølgen må
+ * matche "select new ..." i RecipeJpaRepository.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecipeSummaryDto {
+    private String id;
+    private String title;
+    private String coverImageId;
+    private String imageUrl;
+    private Boolean favorite;
+    private LocalDateTime favoritedAt;
+    private Boolean pinned;
+    private LocalDateTime pinnedAt;
+    private LocalDateTime lastViewedAt;
+    private Integer viewCount;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,76 @@
+package com.quant.backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Varig nivå i RecipeParseCache: rått AI-svar per SHA-256 av (modus, promptversjon, normalisert input).
+ *
+ * Radene endres aldri, bare settes inn eller slettes, så save() går rett til INSERT.
+ */
+@Entity
+@Table(name = "ai_parse_cache")
+@Data
+@NoArgsConstructor
+public class AiParseCacheEntity implements Persistable<String> {
+
+    @Id
+    @Column(name = "cache_key", length = 64)
+    private String cacheKey;
+
+    // TEXT | IMAGE
+    @Column(name = "import_mode", nullable = false, length = 16)
+    private String importMode;
+
+    @Column(name = "prompt_version", nullable = false, length = 32)
+    private String promptVersion;
+
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    @Column(name = "response", nullable = false)
+    private String response;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean newEntity = true;
+
+    public AiParseCacheEntity(String cacheKey, String importMode, String promptVersion,
+                              String response, LocalDateTime createdAt) {
+        this.cacheKey = cacheKey;
+        this.importMode = importMode;
+        this.promptVersion = promptVersion;
+        this.response = response;
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String getId() {
+        return cacheKey;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    void markNotNew() {
+        newEntity = false;
+    }
+}
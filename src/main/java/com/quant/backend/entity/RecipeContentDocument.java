@@ -0,0 +1,23 @@
+package com.quant.backend.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ingredienser, steg og kategorier serialisert som ett JSON-dokument i recipes.content_doc
+ * (JSONB på Postgres). Brukes når quant.recipes.storage-mode=DOCUMENT.
+ *
+ * Feltnavnene må holdes i synk med backfillen i V5__add_recipe_content_document.sql.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecipeContentDocument {
+    private List<IngredientEmbeddable> ingredients = new ArrayList<>();
+    private List<RecipeStepEmbeddable> steps = new ArrayList<>();
+    private List<String> categories = new ArrayList<>();
+}
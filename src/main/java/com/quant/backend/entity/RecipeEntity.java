@@ -3,18 +3,43 @@ package com.quant.backend.entity;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.SQLRestriction;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Child-samlingene er LAZY. Enkeltoppslag bruker entity graph-en {@link #GRAPH_DETAIL}
+ * (ingredienser i samme select), mens lister lastes samlet med @BatchSize
+ * i stedet for én select per rad og samling.
+ *
+ * Implementerer {@link Persistable} slik at en nygenerert id går rett til INSERT; uten det
+ * ser Spring Data en satt id og gjør merge (SELECT først) for hver nye oppskrift.
+ */
 @Entity
 @Table(name = "recipes")
+// Myk-slettede rader (RecipeDeleteMode.SOFT) finnes til purge-jobben har fjernet dem, men skal aldri leses
+@SQLRestriction("deleted_at IS NULL")
+@NamedEntityGraph(
+        name = RecipeEntity.GRAPH_DETAIL,
+        // Kun én samling joines: flere ville gitt et kartesisk produkt (ingredienser x steg x kategorier)
+        attributeNodes = @NamedAttributeNode("ingredients")
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class RecipeEntity {
+public class RecipeEntity implements Persistable<String> {
+
+    public static final String GRAPH_DETAIL = "RecipeEntity.detail";
+
     @Id
     @Column(name = "id")
     private String id;
@@ -67,6 +92,26 @@ public class RecipeEntity {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    // Ikke en kolonne; settes av JpaRecipeRepository når raden garantert ikke finnes fra før
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean newEntity;
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        newEntity = false;
+    }
+
     @PrePersist
     public void prePersist() {
         LocalDateTime now = LocalDateTime.now();
@@ -78,22 +123,36 @@ public class RecipeEntity {
         }
     }
     
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection
+    @BatchSize(size = 100)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @CollectionTable(name = "recipe_ingredients", joinColumns = @JoinColumn(name = "recipe_id"))
     @OrderColumn(name = "ingredient_order")
     private List<IngredientEmbeddable> ingredients = new ArrayList<>();
     
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection
+    @BatchSize(size = 100)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @CollectionTable(name = "recipe_steps", joinColumns = @JoinColumn(name = "recipe_id"))
     @OrderColumn(name = "step_order")
     private List<RecipeStepEmbeddable> steps = new ArrayList<>();
     
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection
+    @BatchSize(size = 100)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @CollectionTable(name = "recipe_categories", joinColumns = @JoinColumn(name = "recipe_id"))
     @Column(name = "category")
     @OrderColumn(name = "category_order")
     private List<String> categories = new ArrayList<>();
     
+    // Satt i DOCUMENT-modus (se RecipeStorageMode); null betyr at samlingene over gjelder
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "content_doc")
+    private RecipeContentDocument contentDocument;
+
     @Embedded
     private RecipeMetadataEmbeddable metadata;
 }
@@ -0,0 +1,65 @@
+package com.quant.backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Markerer at en oppskrift er slettet, slik at delta-synk (GET /api/recipes/changes)
+ * kan melde slettingen til klientene. Ryddes etter quant.recipes.tombstone-retention-days.
+ *
+ * Nye tombstones settes alltid inn (eventuelle gamle med samme id slettes først), så save()
+ * skal gå rett til INSERT og kunne batches i stedet for å gjøre merge med SELECT.
+ */
+@Entity
+@Table(name = "recipe_tombstones")
+@Data
+@NoArgsConstructor
+public class RecipeTombstoneEntity implements Persistable<String> {
+
+    @Id
+    @Column(name = "recipe_id")
+    private String recipeId;
+
+    @Column(name = "owner_user_id", nullable = false)
+    private String ownerUserId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean newEntity = true;
+
+    public RecipeTombstoneEntity(String recipeId, String ownerUserId, LocalDateTime deletedAt) {
+        this.recipeId = recipeId;
+        this.ownerUserId = ownerUserId;
+        this.deletedAt = deletedAt;
+    }
+
+    @Override
+    public String getId() {
+        return recipeId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    void markNotNew() {
+        newEntity = false;
+    }
+}
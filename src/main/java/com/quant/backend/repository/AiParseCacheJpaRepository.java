@@ -0,0 +1,21 @@
+package com.quant.backend.repository;
+
+import com.quant.backend.entity.AiParseCacheEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface AiParseCacheJpaRepository extends JpaRepository<AiParseCacheEntity, String> {
+
+    @Transactional
+    @Modifying
+    @Query("delete from AiParseCacheEntity e where e.importMode = :importMode")
+    int deleteByImportMode(@Param("importMode") String importMode);
+
+    @Transactional
+    @Modifying
+    @Query("delete from AiParseCacheEntity e")
+    int deleteAllEntries();
+}
@@ -0,0 +1,381 @@
+package com.quant.backend.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.quant.backend.config.ReplicaRoutingDataSource;
+import com.quant.backend.dto.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Lesecache rundt {@link JpaRecipeRepository}, nøklet på bruker (lister) og bruker + oppskrift (enkeltoppslag).
+ *
+ * Alle skrivinger går gjennom denne klassen og invaliderer berørte nøkler, både med en gang og
+ * etter commit. Innlasting skjer i Caffeine sin get(key, loader), så en invalidering av samme
+ * nøkkel venter til lesingen er ferdig og fjerner resultatet. I tillegg telles invalideringer:
+ * overlapper en lesing en invalidering (også de som ikke treffer nøkkelen direkte, som admin og
+ * lister), returneres resultatet uten å caches, siden det kan være lest fra før skrivingen.
+ * Innlasting leser alltid fra primary ({@link ReplicaRoutingDataSource#onPrimary}): ikke alle
+ * skrivinger har en innlogget bruker å styre read-your-writes etter (visningsflush, purge, admin),
+ * og en replika som henger etter ville ellers blitt cachet i hele TTL-en.
+ * DTO-ene er muterbare, så cachen lagrer og returnerer egne kopier.
+ *
+ * Visningstellere (RecipeViewBuffer) skrives med JDBC utenom denne klassen; etter hver flush
+ * invalideres de berørte oppskriftene via RecipeViewsFlushedEvent, slik at kropp og ETag stemmer.
+ * Paginerte lister, summaries og admin-lister caches ikke.
+ */
+@Repository
+@Primary
+public class CachingRecipeRepository implements RecipeRepository {
+
+    private record RecipeKey(String userId, String id) {}
+
+    private final JpaRecipeRepository delegate;
+    private final Cache<RecipeKey, RecipeDto> recipes;
+    private final Cache<String, List<RecipeDto>> recipeLists;
+
+    // Økes før hver invalidering; se klassekommentaren
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CachingRecipeRepository(JpaRecipeRepository delegate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${quant.recipes.cache.max-recipes:10000}") long maxRecipes,
+                                   @Value("${quant.recipes.cache.max-list-recipes:50000}") long maxListRecipes,
+                                   @Value("${quant.recipes.cache.ttl:10m}") Duration ttl) {
+        this.delegate = delegate;
+
+        this.recipes = Caffeine.newBuilder()
+                .maximumSize(maxRecipes)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        // Vektes på antall oppskrifter i listen, så én stor samling ikke kan fylle heapen
+        this.recipeLists = Caffeine.newBuilder()
+                .maximumWeight(maxListRecipes)
+                .<String, List<RecipeDto>>weigher((userId, list) -> list.size() + 1)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, recipes, "recipes");
+        CaffeineCacheMetrics.monitor(meterRegistry, recipeLists, "recipeLists");
+    }
+
+    // --------------------------------------------------
+    // Cached reads
+    // --------------------------------------------------
+
+    @Override
+    public List<RecipeDto> findAllForUser(String userId) {
+        List<List<RecipeDto>> loaded = new ArrayList<>(1);
+        List<RecipeDto> cached = recipeLists.get(userId, id -> {
+            long generation = invalidations.get();
+            List<RecipeDto> list = ReplicaRoutingDataSource.onPrimary(() -> delegate.findAllForUser(id));
+            loaded.add(list);
+            return invalidations.get() == generation ? copyAll(list) : null;
+        });
+
+        if (cached != null) {
+            return copyAll(cached);
+        }
+        return loaded.get(0);
+    }
+
+    @Override
+    public Optional<RecipeDto> findByIdForUser(String userId, String id) {
+        List<Optional<RecipeDto>> loaded = new ArrayList<>(1);
+        RecipeDto cached = recipes.get(new RecipeKey(userId, id), key -> {
+            long generation = invalidations.get();
+            Optional<RecipeDto> dto = ReplicaRoutingDataSource.onPrimary(() -> delegate.findByIdForUser(userId, id));
+            loaded.add(dto);
+            return dto.isPresent() && invalidations.get() == generation ? copyOf(dto.get()) : null;
+        });
+
+        if (cached != null) {
+            return Optional.of(copyOf(cached));
+        }
+        // Ikke cachet: enten finnes den ikke, eller lesingen overlappet en invalidering
+        return loaded.isEmpty() ? Optional.empty() : loaded.get(0);
+    }
+
+    // --------------------------------------------------
+    // Pass-through reads
+    // --------------------------------------------------
+
+    @Override
+    public long forEachForUser(String userId, Consumer<RecipeDto> consumer) {
+        return delegate.forEachForUser(userId, consumer);
+    }
+
+    @Override
+    public RecipeFacetsDto findFacetsForUser(String userId, Boolean favorite, Boolean pinned, String category,
+                                             Collection<String> restrictToIds) {
+        return delegate.findFacetsForUser(userId, favorite, pinned, category, restrictToIds);
+    }
+
+    @Override
+    public List<RecipeSummaryDto> findSummariesByIdsForUser(String userId, Collection<String> ids) {
+        return delegate.findSummariesByIdsForUser(userId, ids);
+    }
+
+    @Override
+    public CursorPageDto<RecipeDto> findPageForUser(String userId, RecipeCursor cursor, int limit) {
+        return delegate.findPageForUser(userId, cursor, limit);
+    }
+
+    @Override
+    public List<RecipeSummaryDto> findSummariesForUser(String userId) {
+        return delegate.findSummariesForUser(userId);
+    }
+
+    @Override
+    public CursorPageDto<RecipeSummaryDto> findSummaryPageForUser(String userId, RecipeCursor cursor, int limit) {
+        return delegate.findSummaryPageForUser(userId, cursor, limit);
+    }
+
+    @Override
+    public boolean existsByIdForUser(String userId, String id) {
+        return delegate.existsByIdForUser(userId, id);
+    }
+
+    @Override
+    public List<RecipeDto> findChangedAfterForUser(String userId, RecipeCursor after, int limit) {
+        return delegate.findChangedAfterForUser(userId, after, limit);
+    }
+
+    @Override
+    public List<RecipeTombstoneDto> findTombstonesAfterForUser(String userId, RecipeCursor after, int limit) {
+        return delegate.findTombstonesAfterForUser(userId, after, limit);
+    }
+
+    @Override
+    public Optional<RecipeVersion> findVersionForUser(String userId, String id) {
+        return delegate.findVersionForUser(userId, id);
+    }
+
+    @Override
+    public RecipeListVersion findListVersionForUser(String userId) {
+        return delegate.findListVersionForUser(userId);
+    }
+
+    @Override
+    public CursorPageDto<RecipeDto> findPageAdmin(RecipeCursor cursor, int limit) {
+        return delegate.findPageAdmin(cursor, limit);
+    }
+
+    @Override
+    public long forEachAdmin(RecipeAdminFilter filter, Consumer<OwnedRecipe> consumer) {
+        return delegate.forEachAdmin(filter, consumer);
+    }
+
+    @Override
+    public CursorPageDto<OwnedRecipe> findOwnedPageAdmin(RecipeAdminFilter filter, RecipeCursor cursor, int limit) {
+        return delegate.findOwnedPageAdmin(filter, cursor, limit);
+    }
+
+    @Override
+    public CursorPageDto<RecipeSummaryDto> findSummaryPageAdmin(RecipeCursor cursor, int limit) {
+        return delegate.findSummaryPageAdmin(cursor, limit);
+    }
+
+    @Override
+    public Optional<RecipeDto> findByIdAdmin(String id) {
+        return delegate.findByIdAdmin(id);
+    }
+
+    @Override
+    public Optional<RecipeVersion> findVersionAdmin(String id) {
+        return delegate.findVersionAdmin(id);
+    }
+
+    @Override
+    public RecipeListVersion findListVersionAdmin() {
+        return delegate.findListVersionAdmin();
+    }
+
+    // --------------------------------------------------
+    // Writes (write-through invalidation)
+    // --------------------------------------------------
+
+    @Override
+    public RecipeDto saveForUser(String userId, RecipeDto recipe) {
+        RecipeDto saved = delegate.saveForUser(userId, recipe);
+        invalidate(userId, saved.getId());
+        return saved;
+    }
+
+    @Override
+    public List<RecipeSaveResult> saveAllForUser(String userId, List<RecipeDto> batch) {
+        List<RecipeSaveResult> results = delegate.saveAllForUser(userId, batch);
+        for (RecipeSaveResult result : results) {
+            if (result.status() != RecipeSaveResult.Status.REJECTED) {
+                invalidate(userId, result.recipe().getId());
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public boolean deleteByIdForUser(String userId, String id) {
+        boolean deleted = delegate.deleteByIdForUser(userId, id);
+        invalidate(userId, id);
+        return deleted;
+    }
+
+    @Override
+    public List<String> deleteAllForUser(String userId, Collection<String> ids) {
+        List<String> deleted = delegate.deleteAllForUser(userId, ids);
+        for (String id : deleted) {
+            invalidate(userId, id);
+        }
+        return deleted;
+    }
+
+    @Override
+    public int purgeSoftDeleted(LocalDateTime deletedBefore, int limit) {
+        // Radene var allerede usynlige (og invalidert da de ble myk-slettet)
+        return delegate.purgeSoftDeleted(deletedBefore, limit);
+    }
+
+    @Override
+    public boolean setFavoriteForUser(String userId, String id, boolean favorite, LocalDateTime changedAt) {
+        boolean updated = delegate.setFavoriteForUser(userId, id, favorite, changedAt);
+        invalidate(userId, id);
+        return updated;
+    }
+
+    @Override
+    public boolean setPinnedForUser(String userId, String id, boolean pinned, LocalDateTime changedAt) {
+        boolean updated = delegate.setPinnedForUser(userId, id, pinned, changedAt);
+        invalidate(userId, id);
+        return updated;
+    }
+
+    @Override
+    public boolean setCoverImageForUser(String userId, String id, String coverImageId, LocalDateTime changedAt) {
+        boolean updated = delegate.setCoverImageForUser(userId, id, coverImageId, changedAt);
+        invalidate(userId, id);
+        return updated;
+    }
+
+    @Override
+    public RecipeDto saveAdmin(RecipeDto recipe) {
+        RecipeDto saved = delegate.saveAdmin(recipe);
+        invalidateEverywhere(saved.getId());
+        return saved;
+    }
+
+    @Override
+    public boolean deleteByIdAdmin(String id) {
+        boolean deleted = delegate.deleteByIdAdmin(id);
+        invalidateEverywhere(id);
+        return deleted;
+    }
+
+    // --------------------------------------------------
+    // Invalidation
+    // --------------------------------------------------
+
+    private void invalidate(String userId, String id) {
+        Runnable evict = () -> {
+            invalidations.incrementAndGet();
+            recipes.invalidate(new RecipeKey(userId, id));
+            recipeLists.invalidate(userId);
+        };
+        evict.run();
+        afterCommit(evict);
+    }
+
+    @EventListener
+    public void onViewsFlushed(RecipeViewsFlushedEvent event) {
+        invalidations.incrementAndGet();
+        for (RecipeViewsFlushedEvent.ViewedRecipe viewed : event.recipes()) {
+            recipes.invalidate(new RecipeKey(viewed.ownerUserId(), viewed.recipeId()));
+            recipeLists.invalidate(viewed.ownerUserId());
+        }
+    }
+
+    // Admin kjenner ikke eieren; admin-skriving er sjelden, så vi tar alle lister
+    private void invalidateEverywhere(String id) {
+        Runnable evict = () -> {
+            invalidations.incrementAndGet();
+            recipes.asMap().keySet().removeIf(key -> key.id().equals(id));
+            recipeLists.invalidateAll();
+        };
+        evict.run();
+        afterCommit(evict);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // --------------------------------------------------
+    // Defensive copies
+    // --------------------------------------------------
+
+    private List<RecipeDto> copyAll(List<RecipeDto> list) {
+        List<RecipeDto> copies = new ArrayList<>(list.size());
+        for (RecipeDto dto : list) {
+            copies.add(copyOf(dto));
+        }
+        return copies;
+    }
+
+    private RecipeDto copyOf(RecipeDto r) {
+        RecipeDto copy = r.toBuilder().build();
+
+        if (r.getIngredients() != null) {
+            copy.setIngredients(r.getIngredients().stream()
+                    .map(i -> new IngredientDto(
+                            i.getAmount(), i.getUnit(), i.getItem(), i.getNotes(), i.getSection()
+                    )).toList());
+        }
+
+        if (r.getSteps() != null) {
+            copy.setSteps(r.getSteps().stream()
+                    .map(s -> new RecipeStepDto(
+                            s.getStep(), s.getInstruction(), s.getNotes()
+                    )).toList());
+        }
+
+        if (r.getMetadata() != null) {
+            var m = r.getMetadata();
+            copy.setMetadata(RecipeMetadataDto.builder()
+                    .sourceUrl(m.getSourceUrl())
+                    .author(m.getAuthor())
+                    .language(m.getLanguage())
+                    .categories(m.getCategories() != null ? new ArrayList<>(m.getCategories()) : new ArrayList<>())
+                    .imageUrl(m.getImageUrl())
+                    .calculatorId(m.getCalculatorId())
+                    .importMethod(m.getImportMethod())
+                    .build());
+        }
+
+        return copy;
+    }
+}
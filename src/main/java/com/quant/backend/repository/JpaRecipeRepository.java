@@ -2,23 +2,57 @@ package com.quant.backend.repository;
 
 import com.quant.backend.dto.*;
 import com.quant.backend.entity.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Repository
 public class JpaRecipeRepository implements RecipeRepository {
 
-    private final RecipeJpaRepository jpaRepository;
+    // Lik @BatchSize på samlingene: én batch-henting per samling per chunk
+    private static final int STREAM_CHUNK_SIZE = 100;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
-    public JpaRecipeRepository(RecipeJpaRepository jpaRepository) {
+    private final RecipeJpaRepository jpaRepository;
+    private final RecipeTombstoneJpaRepository tombstoneRepository;
+    private final RecipeStorageMode storageMode;
+    private final RecipeDeleteMode deleteMode;
+    private final ApplicationEventPublisher events;
+
+    public JpaRecipeRepository(RecipeJpaRepository jpaRepository,
+                               RecipeTombstoneJpaRepository tombstoneRepository,
+                               @Value("${quant.recipes.storage-mode:COLLECTIONS}") RecipeStorageMode storageMode,
+                               @Value("${quant.recipes.delete-mode:HARD}") RecipeDeleteMode deleteMode,
+                               ApplicationEventPublisher events) {
         this.jpaRepository = jpaRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.storageMode = storageMode;
+        this.deleteMode = deleteMode;
+        this.events = events;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<RecipeDto> findAllForUser(String userId) {
         return jpaRepository.findAllByOwnerUserId(userId).stream()
                 .map(this::entityToDto)
@@ -26,16 +60,67 @@ public class JpaRecipeRepository implements RecipeRepository {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public CursorPageDto<RecipeDto> findPageForUser(String userId, RecipeCursor cursor, int limit) {
+        // Henter én ekstra rad for å vite om det finnes en neste side
+        List<RecipeEntity> rows = cursor == null
+                ? jpaRepository.findFirstPageByOwner(userId, Limit.of(limit + 1))
+                : jpaRepository.findPageByOwnerAfter(userId, cursor.updatedAt(), cursor.id(), Limit.of(limit + 1));
+        return toPage(rows, limit, this::entityToDto);
+    }
+
+    @Override
+    public List<RecipeSummaryDto> findSummariesForUser(String userId) {
+        return jpaRepository.findSummariesByOwner(userId, Limit.unlimited());
+    }
+
+    @Override
+    public CursorPageDto<RecipeSummaryDto> findSummaryPageForUser(String userId, RecipeCursor cursor, int limit) {
+        List<RecipeSummaryDto> rows = cursor == null
+                ? jpaRepository.findSummariesByOwner(userId, Limit.of(limit + 1))
+                : jpaRepository.findSummariesByOwnerAfter(userId, cursor.updatedAt(), cursor.id(), Limit.of(limit + 1));
+        return toSummaryPage(rows, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Optional<RecipeDto> findByIdForUser(String userId, String id) {
         return jpaRepository.findByIdAndOwnerUserId(id, userId)
                 .map(this::entityToDto);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public long forEachForUser(String userId, Consumer<RecipeDto> consumer) {
+        try (Stream<RecipeEntity> rows = jpaRepository.streamByOwner(userId)) {
+            return forEachInChunks(rows, this::entityToDto, consumer);
+        }
+    }
+
+    @Override
+    public List<RecipeSummaryDto> findSummariesByIdsForUser(String userId, Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jpaRepository.findSummariesByOwnerAndIds(userId, ids);
+    }
+
+    @Override
+    @Transactional
     public RecipeDto saveForUser(String userId, RecipeDto recipe) {
 
-        if (recipe.getId() == null || recipe.getId().isEmpty()) {
-            recipe.setId(UUID.randomUUID().toString());
+        boolean generatedId = recipe.getId() == null || recipe.getId().isEmpty();
+        if (generatedId) {
+            recipe.setId(Ids.newId());
+        } else {
+            List<String> ids = List.of(recipe.getId());
+            // Id-en til en annen brukers oppskrift (også en myk-slettet) skal verken overskrives eller ryddes
+            if (!jpaRepository.findIdsOwnedByOthers(userId, ids).isEmpty()) {
+                throw new IllegalArgumentException("Recipe id is already in use");
+            }
+            // Lagret på nytt etter sletting: fjern tombstone så delta-synk ikke melder den slettet
+            tombstoneRepository.deleteByOwnerAndRecipeIds(userId, ids);
+            purgeSoftDeleted(userId, ids);
         }
 
         RecipeEntity entity = dtoToEntity(recipe);
@@ -43,17 +128,133 @@ public class JpaRecipeRepository implements RecipeRepository {
         // Alltid sett owner eksplisitt
         entity.setOwnerUserId(userId);
 
+        // Ny generert id kan ikke finnes: persist direkte i stedet for merge (sparer en SELECT)
+        entity.setNewEntity(generatedId);
+
         RecipeEntity saved = jpaRepository.save(entity);
-        return entityToDto(saved);
+        RecipeDto result = entityToDto(saved);
+        events.publishEvent(new RecipeSavedEvent(userId, result));
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public List<RecipeSaveResult> saveAllForUser(String userId, List<RecipeDto> recipes) {
+        List<String> ids = recipes.stream()
+                .map(RecipeDto::getId)
+                .filter(id -> id != null && !id.isEmpty())
+                .distinct()
+                .toList();
+
+        // Andres id-er (også myk-slettede) avvises nedenfor og skal ikke ryddes her
+        Set<String> foreign = ids.isEmpty() ? Set.of() : new HashSet<>(jpaRepository.findIdsOwnedByOthers(userId, ids));
+        List<String> ownIds = ids.stream().filter(id -> !foreign.contains(id)).toList();
+
+        // Ett oppslag for hele chunken; eksisterende rader havner i persistence context, så merge
+        // nedenfor ikke gjør en SELECT per oppskrift
+        Map<String, RecipeEntity> existing = new HashMap<>();
+        if (!ownIds.isEmpty()) {
+            purgeSoftDeleted(userId, ownIds);
+            for (RecipeEntity entity : jpaRepository.findAllById(ownIds)) {
+                existing.put(entity.getId(), entity);
+            }
+            tombstoneRepository.deleteByOwnerAndRecipeIds(userId, ownIds);
+        }
+
+        Set<String> persisted = new HashSet<>();
+        List<RecipeSaveResult> results = new ArrayList<>(recipes.size());
+
+        for (RecipeDto recipe : recipes) {
+            if (recipe.getId() == null || recipe.getId().isEmpty()) {
+                recipe.setId(Ids.newId());
+            }
+
+            if (foreign.contains(recipe.getId())) {
+                results.add(new RecipeSaveResult(RecipeSaveResult.Status.REJECTED, recipe));
+                continue;
+            }
+            RecipeEntity current = existing.get(recipe.getId());
+
+            RecipeEntity entity = dtoToEntity(recipe);
+            entity.setOwnerUserId(userId);
+
+            // Samme id to ganger i en chunk: andre gang er en oppdatering av den første
+            boolean created = current == null && persisted.add(recipe.getId());
+            entity.setNewEntity(created);
+
+            RecipeDto result = entityToDto(jpaRepository.save(entity));
+            events.publishEvent(new RecipeSavedEvent(userId, result));
+            results.add(new RecipeSaveResult(
+                    created ? RecipeSaveResult.Status.CREATED : RecipeSaveResult.Status.UPDATED,
+                    result
+            ));
+        }
+
+        return results;
     }
 
     @Override
+    @Transactional
     public boolean deleteByIdForUser(String userId, String id) {
-        if (!jpaRepository.existsByIdAndOwnerUserId(id, userId)) {
-            return false;
+        return !deleteAllForUser(userId, List.of(id)).isEmpty();
+    }
+
+    @Override
+    @Transactional
+    public List<String> deleteAllForUser(String userId, Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // Id-er som ikke finnes eller tilhører andre faller bort her; resten er trygt å slette på id
+        List<String> owned = jpaRepository.findOwnedIds(userId, ids);
+        if (owned.isEmpty()) {
+            return owned;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (deleteMode == RecipeDeleteMode.SOFT) {
+            jpaRepository.markDeleted(owned, now);
+        } else {
+            deleteRows(owned);
+        }
+
+        // Id-en kan ha vært brukt og slettet før av samme eier; andres tombstones blokkerer id-en ved lagring
+        tombstoneRepository.deleteByOwnerAndRecipeIds(userId, owned);
+        tombstoneRepository.saveAll(owned.stream()
+                .map(id -> new RecipeTombstoneEntity(id, userId, now))
+                .toList());
+
+        for (String id : owned) {
+            events.publishEvent(new RecipeDeletedEvent(userId, id));
+        }
+        return owned;
+    }
+
+    @Override
+    @Transactional
+    public int purgeSoftDeleted(LocalDateTime deletedBefore, int limit) {
+        List<String> ids = jpaRepository.findSoftDeletedBefore(deletedBefore, limit);
+        if (!ids.isEmpty()) {
+            deleteRows(ids);
+        }
+        return ids.size();
+    }
+
+    // Fire set-baserte DELETE uansett antall oppskrifter, i stedet for load + én DELETE per barnerad
+    private void deleteRows(Collection<String> ids) {
+        jpaRepository.deleteIngredientRows(ids);
+        jpaRepository.deleteStepRows(ids);
+        jpaRepository.deleteCategoryRows(ids);
+        jpaRepository.deleteRecipeRows(ids);
+    }
+
+    // En myk-slettet rad er usynlig for JPA, men har fortsatt primærnøkkelen; fjern den før id-en gjenbrukes
+    private void purgeSoftDeleted(String userId, Collection<String> ids) {
+        List<String> softDeleted = jpaRepository.findSoftDeletedIds(userId, ids);
+        if (!softDeleted.isEmpty()) {
+            deleteRows(softDeleted);
         }
-        jpaRepository.deleteById(id);
-        return true;
     }
 
     @Override
@@ -61,10 +262,138 @@ public class JpaRecipeRepository implements RecipeRepository {
         return jpaRepository.existsByIdAndOwnerUserId(id, userId);
     }
 
+    @Override
+    @Transactional
+    public boolean setFavoriteForUser(String userId, String id, boolean favorite, LocalDateTime changedAt) {
+        return jpaRepository.updateFavorite(id, userId, favorite, favorite ? changedAt : null, changedAt) > 0;
+    }
+
+    @Override
+    @Transactional
+    public boolean setPinnedForUser(String userId, String id, boolean pinned, LocalDateTime changedAt) {
+        return jpaRepository.updatePinned(id, userId, pinned, pinned ? changedAt : null, changedAt) > 0;
+    }
+
+    @Override
+    @Transactional
+    public boolean setCoverImageForUser(String userId, String id, String coverImageId, LocalDateTime changedAt) {
+        return jpaRepository.updateCoverImage(id, userId, coverImageId, changedAt) > 0;
+    }
+
+    // Delta-synk leser fra primary (ikke readOnly): med replika-lag kunne en rad som allerede er
+    // committet på primary mangle her, og klienten ville aldri fått den når markøren har passert
+    @Override
+    @Transactional
+    public List<RecipeDto> findChangedAfterForUser(String userId, RecipeCursor after, int limit) {
+        return jpaRepository.findChangedAfterByOwner(userId, after.updatedAt(), after.id(), Limit.of(limit)).stream()
+                .map(this::entityToDto)
+                .toList();
+    }
+
+    @Override
+    @Transactional
+    public List<RecipeTombstoneDto> findTombstonesAfterForUser(String userId, RecipeCursor after, int limit) {
+        return tombstoneRepository.findForOwnerAfter(userId, after.updatedAt(), after.id(), Limit.of(limit)).stream()
+                .map(t -> new RecipeTombstoneDto(t.getRecipeId(), t.getDeletedAt()))
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public RecipeFacetsDto findFacetsForUser(String userId, Boolean favorite, Boolean pinned, String category,
+                                             Collection<String> restrictToIds) {
+        if (restrictToIds != null && restrictToIds.isEmpty()) {
+            return new RecipeFacetsDto(0, 0, 0, new ArrayList<>());
+        }
+
+        RecipeFacetTotals totals = restrictToIds == null
+                ? jpaRepository.findFacetTotals(userId, favorite, pinned, category)
+                : jpaRepository.findFacetTotalsAmong(userId, favorite, pinned, category, restrictToIds);
+        List<CategoryCountDto> categories = restrictToIds == null
+                ? jpaRepository.findCategoryCounts(userId, favorite, pinned, category)
+                : jpaRepository.findCategoryCountsAmong(userId, favorite, pinned, category, restrictToIds);
+
+        return new RecipeFacetsDto(
+                totals.total(),
+                totals.favorites(),
+                totals.pinned(),
+                new ArrayList<>(categories)
+        );
+    }
+
+    @Override
+    public Optional<RecipeVersion> findVersionForUser(String userId, String id) {
+        return jpaRepository.findVersionByIdAndOwner(id, userId);
+    }
+
+    @Override
+    public RecipeListVersion findListVersionForUser(String userId) {
+        return jpaRepository.findListVersionByOwner(userId);
+    }
+
+    // --------------------------------------------------
+    // STREAMING
+    // --------------------------------------------------
+
+    // Samler en chunk før mapping, så @BatchSize kan laste samlingene for hele chunken i én spørring,
+    // og tømmer persistence context etterpå slik at minnebruken ikke vokser med antall oppskrifter.
+    private <T> long forEachInChunks(Stream<RecipeEntity> rows, Function<RecipeEntity, T> mapper, Consumer<T> consumer) {
+        List<RecipeEntity> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+        long count = 0;
+
+        for (Iterator<RecipeEntity> it = rows.iterator(); it.hasNext(); ) {
+            chunk.add(it.next());
+            if (chunk.size() == STREAM_CHUNK_SIZE) {
+                count += emitChunk(chunk, mapper, consumer);
+            }
+        }
+        count += emitChunk(chunk, mapper, consumer);
+        return count;
+    }
+
+    private <T> int emitChunk(List<RecipeEntity> chunk, Function<RecipeEntity, T> mapper, Consumer<T> consumer) {
+        int size = chunk.size();
+        for (RecipeEntity entity : chunk) {
+            consumer.accept(mapper.apply(entity));
+        }
+        chunk.clear();
+        entityManager.clear();
+        return size;
+    }
+
     // --------------------------------------------------
     // ENTITY MAPPING
     // --------------------------------------------------
 
+    private <T> CursorPageDto<T> toPage(List<RecipeEntity> rows, int limit, Function<RecipeEntity, T> mapper) {
+        boolean hasMore = rows.size() > limit;
+        List<RecipeEntity> pageRows = hasMore ? rows.subList(0, limit) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            RecipeEntity last = pageRows.get(pageRows.size() - 1);
+            nextCursor = new RecipeCursor(last.getUpdatedAt(), last.getId()).encode();
+        }
+
+        return new CursorPageDto<>(
+                pageRows.stream().map(mapper).toList(),
+                nextCursor
+        );
+    }
+
+    private CursorPageDto<RecipeSummaryDto> toSummaryPage(List<RecipeSummaryDto> rows, int limit) {
+        boolean hasMore = rows.size() > limit;
+        List<RecipeSummaryDto> pageRows = hasMore ? rows.subList(0, limit) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            RecipeSummaryDto last = pageRows.get(pageRows.size() - 1);
+            nextCursor = new RecipeCursor(last.getUpdatedAt(), last.getId()).encode();
+        }
+
+        return new CursorPageDto<>(new ArrayList<>(pageRows), nextCursor);
+    }
+
     private RecipeEntity dtoToEntity(RecipeDto dto) {
         RecipeEntity entity = new RecipeEntity();
 
@@ -85,43 +414,53 @@ public class JpaRecipeRepository implements RecipeRepository {
         entity.setCreatedAt(dto.getCreatedAt());
         entity.setUpdatedAt(dto.getUpdatedAt());
 
-        // ------------------
-        // Ingredients
-        // ------------------
-
-        if (dto.getIngredients() != null) {
-            entity.setIngredients(dto.getIngredients().stream()
-                    .map(ing -> new IngredientEmbeddable(
-                            ing.getAmount(),
-                            ing.getUnit(),
-                            ing.getItem(),
-                            ing.getNotes(),
-                            ing.getSection()
-                    ))
-                    .toList());
-        }
+        List<IngredientEmbeddable> ingredients = dto.getIngredients() == null
+                ? new ArrayList<>()
+                : dto.getIngredients().stream()
+                        .map(ing -> new IngredientEmbeddable(
+                                ing.getAmount(),
+                                ing.getUnit(),
+                                ing.getItem(),
+                                ing.getNotes(),
+                                ing.getSection()
+                        ))
+                        .toList();
+
+        List<RecipeStepEmbeddable> steps = dto.getSteps() == null
+                ? new ArrayList<>()
+                : dto.getSteps().stream()
+                        .map(step -> new RecipeStepEmbeddable(
+                                step.getStep(),
+                                step.getInstruction(),
+                                step.getNotes()
+                        ))
+                        .toList();
+
+        List<String> categories = dto.getMetadata() != null && dto.getMetadata().getCategories() != null
+                ? new ArrayList<>(dto.getMetadata().getCategories())
+                : new ArrayList<>();
 
         // ------------------
-        // Steps
+        // Ingredients / steps / categories
         // ------------------
 
-        if (dto.getSteps() != null) {
-            entity.setSteps(dto.getSteps().stream()
-                    .map(step -> new RecipeStepEmbeddable(
-                            step.getStep(),
-                            step.getInstruction(),
-                            step.getNotes()
-                    ))
-                    .toList());
+        if (storageMode == RecipeStorageMode.DOCUMENT) {
+            // Ett JSON-dokument i stedet for én rad per element; tømte samlinger slettes én gang
+            entity.setContentDocument(new RecipeContentDocument(
+                    new ArrayList<>(ingredients),
+                    new ArrayList<>(steps),
+                    new ArrayList<>(categories)
+            ));
+            entity.setIngredients(new ArrayList<>());
+            entity.setSteps(new ArrayList<>());
+        } else {
+            entity.setContentDocument(null);
+            entity.setIngredients(ingredients);
+            entity.setSteps(steps);
         }
 
-        // ------------------
-        // Categories
-        // ------------------
-
-        if (dto.getMetadata() != null && dto.getMetadata().getCategories() != null) {
-            entity.setCategories(new ArrayList<>(dto.getMetadata().getCategories()));
-        }
+        // Kategorier ligger alltid også i recipe_categories (filtrering/telling i SQL)
+        entity.setCategories(categories);
 
         // ------------------
         // Metadata
@@ -172,12 +511,18 @@ public class JpaRecipeRepository implements RecipeRepository {
         dto.setCreatedAt(entity.getCreatedAt());
         dto.setUpdatedAt(entity.getUpdatedAt());
 
+        // DOCUMENT-rader leses fra content_doc og rører ikke child-tabellene
+        RecipeContentDocument doc = entity.getContentDocument();
+        List<IngredientEmbeddable> ingredients = doc != null ? doc.getIngredients() : entity.getIngredients();
+        List<RecipeStepEmbeddable> steps = doc != null ? doc.getSteps() : entity.getSteps();
+        List<String> categories = doc != null ? doc.getCategories() : entity.getCategories();
+
         // ------------------
         // Ingredients
         // ------------------
 
-        if (entity.getIngredients() != null) {
-            dto.setIngredients(entity.getIngredients().stream()
+        if (ingredients != null) {
+            dto.setIngredients(ingredients.stream()
                     .map(ing -> new IngredientDto(
                             ing.getAmount(),
                             ing.getUnit(),
@@ -192,8 +537,8 @@ public class JpaRecipeRepository implements RecipeRepository {
         // Steps
         // ------------------
 
-        if (entity.getSteps() != null) {
-            dto.setSteps(entity.getSteps().stream()
+        if (steps != null) {
+            dto.setSteps(steps.stream()
                     .map(step -> new RecipeStepDto(
                             step.getStep(),
                             step.getInstruction(),
@@ -213,8 +558,8 @@ public class JpaRecipeRepository implements RecipeRepository {
                     .sourceUrl(meta.getSourceUrl())
                     .author(meta.getAuthor())
                     .language(meta.getLanguage())
-                    .categories(entity.getCategories() != null
-                            ? new ArrayList<>(entity.getCategories())
+                    .categories(categories != null
+                            ? new ArrayList<>(categories)
                             : new ArrayList<>())
                     .imageUrl(meta.getImageUrl())
                     .calculatorId(meta.getCalculatorId())
@@ -240,19 +585,65 @@ public class JpaRecipeRepository implements RecipeRepository {
     // --------------------------------------------------
 
     @Override
-    public List<RecipeDto> findAllAdmin() {
-        return jpaRepository.findAll().stream()
-                .map(this::entityToDto)
-                .toList();
+    @Transactional(readOnly = true)
+    public CursorPageDto<RecipeDto> findPageAdmin(RecipeCursor cursor, int limit) {
+        return toPage(adminPageRows(RecipeAdminFilter.NONE, cursor, limit), limit, this::entityToDto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDto<OwnedRecipe> findOwnedPageAdmin(RecipeAdminFilter filter, RecipeCursor cursor, int limit) {
+        return toPage(adminPageRows(filter, cursor, limit), limit, this::toOwnedRecipe);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public long forEachAdmin(RecipeAdminFilter filter, Consumer<OwnedRecipe> consumer) {
+        try (Stream<RecipeEntity> rows = jpaRepository.streamAdmin(
+                filter.ownerUserId(), filter.updatedFrom(), filter.updatedTo())) {
+            return forEachInChunks(rows, this::toOwnedRecipe, consumer);
+        }
+    }
+
+    private List<RecipeEntity> adminPageRows(RecipeAdminFilter filter, RecipeCursor cursor, int limit) {
+        return cursor == null
+                ? jpaRepository.findAdminFirstPage(filter.ownerUserId(), filter.updatedFrom(), filter.updatedTo(),
+                        Limit.of(limit + 1))
+                : jpaRepository.findAdminPageAfter(filter.ownerUserId(), filter.updatedFrom(), filter.updatedTo(),
+                        cursor.updatedAt(), cursor.id(), Limit.of(limit + 1));
+    }
+
+    private OwnedRecipe toOwnedRecipe(RecipeEntity entity) {
+        return new OwnedRecipe(entity.getOwnerUserId(), entityToDto(entity));
+    }
+
+    @Override
+    public CursorPageDto<RecipeSummaryDto> findSummaryPageAdmin(RecipeCursor cursor, int limit) {
+        List<RecipeSummaryDto> rows = cursor == null
+                ? jpaRepository.findSummaries(Limit.of(limit + 1))
+                : jpaRepository.findSummariesAfter(cursor.updatedAt(), cursor.id(), Limit.of(limit + 1));
+        return toSummaryPage(rows, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Optional<RecipeDto> findByIdAdmin(String id) {
-        return jpaRepository.findById(id)
+        return jpaRepository.findWithDetailsById(id)
                 .map(this::entityToDto);
     }
 
     @Override
+    public Optional<RecipeVersion> findVersionAdmin(String id) {
+        return jpaRepository.findVersionById(id);
+    }
+
+    @Override
+    public RecipeListVersion findListVersionAdmin() {
+        return jpaRepository.findListVersion();
+    }
+
+    @Override
+    @Transactional
     public RecipeDto saveAdmin(RecipeDto recipe) {
 
         if (recipe.getId() == null || recipe.getId().isEmpty()) {
@@ -270,13 +661,16 @@ public class JpaRecipeRepository implements RecipeRepository {
         entity.setOwnerUserId(existing.get().getOwnerUserId());
 
         RecipeEntity saved = jpaRepository.save(entity);
-        return entityToDto(saved);
+        RecipeDto result = entityToDto(saved);
+        events.publishEvent(new RecipeSavedEvent(saved.getOwnerUserId(), result));
+        return result;
     }
 
     @Override
+    @Transactional
     public boolean deleteByIdAdmin(String id) {
-        if (!jpaRepository.existsById(id)) return false;
-        jpaRepository.deleteById(id);
-        return true;
+        var owner = jpaRepository.findOwnerUserIdById(id);
+        if (owner.isEmpty()) return false;
+        return !deleteAllForUser(owner.get(), List.of(id)).isEmpty();
     }
-}
\ No newline at end of file
+}
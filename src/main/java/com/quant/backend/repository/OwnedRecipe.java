@@ -0,0 +1,8 @@
+package com.quant.backend.repository;
+
+import com.quant.backend.dto.RecipeDto;
+
+/**
+ * RecipeDto sammen med eieren; DTO-en eksponerer ikke owner_user_id til klientene.
+ */
+public record OwnedRecipe(String ownerUserId, RecipeDto recipe) {}
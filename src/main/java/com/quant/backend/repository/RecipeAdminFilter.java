@@ -0,0 +1,11 @@
+package com.quant.backend.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filter for admin-lesing på tvers av brukere. null betyr "ikke filtrer"; updatedTo er eksklusiv.
+ */
+public record RecipeAdminFilter(String ownerUserId, LocalDateTime updatedFrom, LocalDateTime updatedTo) {
+
+    public static final RecipeAdminFilter NONE = new RecipeAdminFilter(null, null, null);
+}
@@ -0,0 +1,54 @@
+package com.quant.backend.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posisjon i delta-synken (GET /api/recipes/changes): én keyset-posisjon for endrede oppskrifter
+ * på (updated_at, id) og én for slettinger på (deleted_at, recipe_id), begge eldste først.
+ *
+ * Med en ren tidsstempel-since kan et kall med hasMore ende midt i en gruppe rader med samme
+ * updated_at, og neste kall starter da på nytt fra samme tidspunkt. Id-en bryter slike likheter.
+ * syncedAt er når markøren ble utstedt; den avgjør om slettinger kan ha blitt ryddet bort siden
+ * (posisjonene selv kan ligge langt tilbake hvis en strøm ikke har hatt endringer).
+ * Klienten ser kun en opak streng, som RecipeCursor.
+ */
+public record RecipeChangesCursor(RecipeCursor upserts, RecipeCursor deletes, LocalDateTime syncedAt) {
+
+    // base64url bruker aldri '.'
+    private static final String SEPARATOR = ".";
+
+    // Alt fra og med since (id "" sorterer før alle id-er), som den gamle since-parameteren
+    public static RecipeChangesCursor since(LocalDateTime since) {
+        RecipeCursor start = new RecipeCursor(since, "");
+        return new RecipeChangesCursor(start, start, since);
+    }
+
+    public String encode() {
+        String synced = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(syncedAt.toString().getBytes(StandardCharsets.UTF_8));
+        return upserts.encode() + SEPARATOR + deletes.encode() + SEPARATOR + synced;
+    }
+
+    public static RecipeChangesCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        String[] parts = cursor.split("\\" + SEPARATOR, -1);
+        if (parts.length != 3 || parts[0].isEmpty() || parts[1].isEmpty() || parts[2].isEmpty()) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            return new RecipeChangesCursor(
+                    RecipeCursor.decode(parts[0]),
+                    RecipeCursor.decode(parts[1]),
+                    LocalDateTime.parse(new String(Base64.getUrlDecoder().decode(parts[2]), StandardCharsets.UTF_8))
+            );
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.quant.backend.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset-posisjon for paginering på (updated_at, id), nyeste først.
+ *
+ * Klienten ser kun en opak base64url-streng; innholdet er en implementasjonsdetalj.
+ */
+public record RecipeCursor(LocalDateTime updatedAt, String id) {
+
+    public String encode() {
+        String raw = updatedAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static RecipeCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            // Tom id er lov: RecipeChangesCursor bruker den for "alt fra og med tidspunktet"
+            if (sep <= 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new RecipeCursor(
+                    LocalDateTime.parse(raw.substring(0, sep)),
+                    raw.substring(sep + 1)
+            );
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.quant.backend.repository;
+
+/**
+ * Hva en sletting gjør med radene.
+ *
+ * HARD: set-baserte DELETE i recipe_ingredients / recipe_steps / recipe_categories / recipes med en gang.
+ * SOFT: bare recipes.deleted_at settes; RecipePurgeJob fjerner radene senere i chunks, utenom travle timer.
+ *
+ * Myk-slettede rader er usynlige for alle JPA-spørringer (@SQLRestriction på RecipeEntity),
+ * og tombstones/søkeindekser oppdateres likt i begge moduser.
+ */
+public enum RecipeDeleteMode {
+    HARD,
+    SOFT
+}
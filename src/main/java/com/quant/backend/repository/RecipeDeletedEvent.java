@@ -0,0 +1,6 @@
+package com.quant.backend.repository;
+
+/**
+ * Publiseres av JpaRecipeRepository når en oppskrift er slettet.
+ */
+public record RecipeDeletedEvent(String ownerUserId, String recipeId) {}
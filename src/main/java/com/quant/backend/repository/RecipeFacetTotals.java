@@ -0,0 +1,6 @@
+package com.quant.backend.repository;
+
+/**
+ * Totaler for fasett-sidepanelet: antall oppskrifter, favoritter og festede innenfor filteret.
+ */
+public record RecipeFacetTotals(Long total, Long favorites, Long pinned) {}
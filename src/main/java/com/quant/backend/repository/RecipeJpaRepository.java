@@ -1,15 +1,367 @@
 package com.quant.backend.repository;
 
+import com.quant.backend.dto.CategoryCountDto;
+import com.quant.backend.dto.RecipeSummaryDto;
 import com.quant.backend.entity.RecipeEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface RecipeJpaRepository extends JpaRepository<RecipeEntity, String> {
     List<RecipeEntity> findAllByOwnerUserId(String ownerUserId);
+
+    @EntityGraph(RecipeEntity.GRAPH_DETAIL)
     Optional<RecipeEntity> findByIdAndOwnerUserId(String id, String ownerUserId);
+
+    @EntityGraph(RecipeEntity.GRAPH_DETAIL)
+    Optional<RecipeEntity> findWithDetailsById(String id);
+
     boolean existsByIdAndOwnerUserId(String id, String ownerUserId);
-}
\ No newline at end of file
+
+    // --------------------------------------------------
+    // Målrettede oppdateringer (én UPDATE, ingen child-tabeller)
+    // --------------------------------------------------
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update RecipeEntity r
+            set r.favorite = :favorite,
+                r.favoritedAt = :favoritedAt,
+                r.updatedAt = :updatedAt
+            where r.id = :id and r.ownerUserId = :ownerUserId
+            """)
+    int updateFavorite(@Param("id") String id,
+                       @Param("ownerUserId") String ownerUserId,
+                       @Param("favorite") boolean favorite,
+                       @Param("favoritedAt") LocalDateTime favoritedAt,
+                       @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update RecipeEntity r
+            set r.pinned = :pinned,
+                r.pinnedAt = :pinnedAt,
+                r.updatedAt = :updatedAt
+            where r.id = :id and r.ownerUserId = :ownerUserId
+            """)
+    int updatePinned(@Param("id") String id,
+                     @Param("ownerUserId") String ownerUserId,
+                     @Param("pinned") boolean pinned,
+                     @Param("pinnedAt") LocalDateTime pinnedAt,
+                     @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update RecipeEntity r
+            set r.coverImageId = :coverImageId,
+                r.updatedAt = :updatedAt
+            where r.id = :id and r.ownerUserId = :ownerUserId
+            """)
+    int updateCoverImage(@Param("id") String id,
+                         @Param("ownerUserId") String ownerUserId,
+                         @Param("coverImageId") String coverImageId,
+                         @Param("updatedAt") LocalDateTime updatedAt);
+
+    // --------------------------------------------------
+    // Delta-synk
+    // --------------------------------------------------
+
+    // Keyset på (updatedAt, id), eldste først, så like tidsstempler ikke gir evig løkke
+    @Query("""
+            select r from RecipeEntity r
+            where r.ownerUserId = :ownerUserId
+              and (r.updatedAt > :updatedAt or (r.updatedAt = :updatedAt and r.id > :id))
+            order by r.updatedAt asc, r.id asc
+            """)
+    List<RecipeEntity> findChangedAfterByOwner(@Param("ownerUserId") String ownerUserId,
+                                               @Param("updatedAt") LocalDateTime updatedAt,
+                                               @Param("id") String id,
+                                               Limit limit);
+
+    @Query("select r.ownerUserId from RecipeEntity r where r.id = :id")
+    Optional<String> findOwnerUserIdById(@Param("id") String id);
+
+    // --------------------------------------------------
+    // Versjonsstempler for ETag (ingen child-tabeller)
+    // --------------------------------------------------
+
+    @Query("""
+            select new com.quant.backend.repository.RecipeVersion(r.updatedAt, r.lastViewedAt, r.viewCount)
+            from RecipeEntity r
+            where r.id = :id and r.ownerUserId = :ownerUserId
+            """)
+    Optional<RecipeVersion> findVersionByIdAndOwner(@Param("id") String id, @Param("ownerUserId") String ownerUserId);
+
+    @Query("""
+            select new com.quant.backend.repository.RecipeVersion(r.updatedAt, r.lastViewedAt, r.viewCount)
+            from RecipeEntity r
+            where r.id = :id
+            """)
+    Optional<RecipeVersion> findVersionById(@Param("id") String id);
+
+    @Query("""
+            select new com.quant.backend.repository.RecipeListVersion(count(r), max(r.updatedAt), max(r.lastViewedAt))
+            from RecipeEntity r
+            where r.ownerUserId = :ownerUserId
+            """)
+    RecipeListVersion findListVersionByOwner(@Param("ownerUserId") String ownerUserId);
+
+    @Query("""
+            select new com.quant.backend.repository.RecipeListVersion(count(r), max(r.updatedAt), max(r.lastViewedAt))
+            from RecipeEntity r
+            """)
+    RecipeListVersion findListVersion();
+
+    // --------------------------------------------------
+    // Streaming (eksport); må konsumeres inne i en transaksjon og lukkes
+    // --------------------------------------------------
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select r from RecipeEntity r
+            where r.ownerUserId = :ownerUserId
+            order by r.updatedAt desc, r.id desc
+            """)
+    Stream<RecipeEntity> streamByOwner(@Param("ownerUserId") String ownerUserId);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select r from RecipeEntity r " + ADMIN_FILTER + """
+            order by r.updatedAt desc, r.id desc
+            """)
+    Stream<RecipeEntity> streamAdmin(@Param("ownerUserId") String ownerUserId,
+                                     @Param("updatedFrom") LocalDateTime updatedFrom,
+                                     @Param("updatedTo") LocalDateTime updatedTo);
+
+    // Rader per rundtur fra JDBC-driveren (Postgres henter ellers hele resultatet i minnet)
+    int STREAM_FETCH_SIZE = 500;
+
+    // --------------------------------------------------
+    // Keyset pagination (updated_at desc, id desc)
+    // --------------------------------------------------
+
+    @Query("""
+            select r from RecipeEntity r
+            where r.ownerUserId = :ownerUserId
+            order by r.updatedAt desc, r.id desc
+            """)
+    List<RecipeEntity> findFirstPageByOwner(@Param("ownerUserId") String ownerUserId, Limit limit);
+
+    @Query("""
+            select r from RecipeEntity r
+            where r.ownerUserId = :ownerUserId
+              and (r.updatedAt < :updatedAt or (r.updatedAt = :updatedAt and r.id < :id))
+            order by r.updatedAt desc, r.id desc
+            """)
+    List<RecipeEntity> findPageByOwnerAfter(@Param("ownerUserId") String ownerUserId,
+                                            @Param("updatedAt") LocalDateTime updatedAt,
+                                            @Param("id") String id,
+                                            Limit limit);
+
+    // Admin: på tvers av eiere, med valgfrie filtre (null = av)
+    String ADMIN_FILTER = """
+            where (:ownerUserId is null or r.ownerUserId = :ownerUserId)
+              and (:updatedFrom is null or r.updatedAt >= :updatedFrom)
+              and (:updatedTo is null or r.updatedAt < :updatedTo)
+            """;
+
+    @Query("select r from RecipeEntity r " + ADMIN_FILTER + """
+            order by r.updatedAt desc, r.id desc
+            """)
+    List<RecipeEntity> findAdminFirstPage(@Param("ownerUserId") String ownerUserId,
+                                          @Param("updatedFrom") LocalDateTime updatedFrom,
+                                          @Param("updatedTo") LocalDateTime updatedTo,
+                                          Limit limit);
+
+    @Query("select r from RecipeEntity r " + ADMIN_FILTER + """
+              and (r.updatedAt < :updatedAt or (r.updatedAt = :updatedAt and r.id < :id))
+            order by r.updatedAt desc, r.id desc
+            """)
+    List<RecipeEntity> findAdminPageAfter(@Param("ownerUserId") String ownerUserId,
+                                          @Param("updatedFrom") LocalDateTime updatedFrom,
+                                          @Param("updatedTo") LocalDateTime updatedTo,
+                                          @Param("updatedAt") LocalDateTime updatedAt,
+                                          @Param("id") String id,
+                                          Limit limit);
+
+    // --------------------------------------------------
+    // Summary projection (rører aldri child-tabellene)
+    // --------------------------------------------------
+
+    String SUMMARY_SELECT = """
+            select new com.quant.backend.dto.RecipeSummaryDto(
+                r.id, r.title, r.coverImageId, r.metadata.imageUrl,
+                r.favorite, r.favoritedAt, r.pinned, r.pinnedAt,
+                r.lastViewedAt, r.viewCount, r.createdAt, r.updatedAt
+            )
+            from RecipeEntity r
+            """;
+
+    @Query(SUMMARY_SELECT + """
+            where r.ownerUserId = :ownerUserId
+            order by r.updatedAt desc, r.id desc
+            """)
+    List<RecipeSummaryDto> findSummariesByOwner(@Param("ownerUserId") String ownerUserId, Limit limit);
+
+    @Query(SUMMARY_SELECT + """
+            where r.ownerUserId = :ownerUserId
+              and (r.updatedAt < :updatedAt or (r.updatedAt = :updatedAt and r.id < :id))
+            order by r.updatedAt desc, r.id desc
+            """)
+    List<RecipeSummaryDto> findSummariesByOwnerAfter(@Param("ownerUserId") String ownerUserId,
+                                                     @Param("updatedAt") LocalDateTime updatedAt,
+                                                     @Param("id") String id,
+                                                     Limit limit);
+
+    @Query(SUMMARY_SELECT + """
+            order by r.updatedAt desc, r.id desc
+            """)
+    List<RecipeSummaryDto> findSummaries(Limit limit);
+
+    @Query(SUMMARY_SELECT + """
+            where r.updatedAt < :updatedAt or (r.updatedAt = :updatedAt and r.id < :id)
+            order by r.updatedAt desc, r.id desc
+            """)
+    List<RecipeSummaryDto> findSummariesAfter(@Param("updatedAt") LocalDateTime updatedAt,
+                                              @Param("id") String id,
+                                              Limit limit);
+
+    // Søketreff slås opp på id; rekkefølgen bestemmes av søkeindeksen
+    @Query(SUMMARY_SELECT + """
+            where r.ownerUserId = :ownerUserId
+              and r.id in :ids
+            """)
+    List<RecipeSummaryDto> findSummariesByOwnerAndIds(@Param("ownerUserId") String ownerUserId,
+                                                      @Param("ids") Collection<String> ids);
+
+    // --------------------------------------------------
+    // Fasetter (GROUP BY i databasen; null-filtre er av)
+    // --------------------------------------------------
+
+    String FACET_FILTER = """
+            where r.ownerUserId = :ownerUserId
+              and (:favorite is null or r.favorite = :favorite)
+              and (:pinned is null or r.pinned = :pinned)
+              and (:category is null or :category member of r.categories)
+            """;
+
+    String FACET_TOTALS_SELECT = """
+            select new com.quant.backend.repository.RecipeFacetTotals(
+                count(r),
+                coalesce(sum(case when r.favorite = true then 1 else 0 end), 0),
+                coalesce(sum(case when r.pinned = true then 1 else 0 end), 0)
+            )
+            from RecipeEntity r
+            """;
+
+    String CATEGORY_COUNT_SELECT = """
+            select new com.quant.backend.dto.CategoryCountDto(c, count(distinct r.id))
+            from RecipeEntity r join r.categories c
+            """;
+
+    @Query(FACET_TOTALS_SELECT + FACET_FILTER)
+    RecipeFacetTotals findFacetTotals(@Param("ownerUserId") String ownerUserId,
+                                      @Param("favorite") Boolean favorite,
+                                      @Param("pinned") Boolean pinned,
+                                      @Param("category") String category);
+
+    @Query(FACET_TOTALS_SELECT + FACET_FILTER + """
+              and r.id in :ids
+            """)
+    RecipeFacetTotals findFacetTotalsAmong(@Param("ownerUserId") String ownerUserId,
+                                           @Param("favorite") Boolean favorite,
+                                           @Param("pinned") Boolean pinned,
+                                           @Param("category") String category,
+                                           @Param("ids") Collection<String> ids);
+
+    @Query(CATEGORY_COUNT_SELECT + FACET_FILTER + """
+            group by c
+            order by count(distinct r.id) desc, c
+            """)
+    List<CategoryCountDto> findCategoryCounts(@Param("ownerUserId") String ownerUserId,
+                                              @Param("favorite") Boolean favorite,
+                                              @Param("pinned") Boolean pinned,
+                                              @Param("category") String category);
+
+    @Query(CATEGORY_COUNT_SELECT + FACET_FILTER + """
+              and r.id in :ids
+            group by c
+            order by count(distinct r.id) desc, c
+            """)
+    List<CategoryCountDto> findCategoryCountsAmong(@Param("ownerUserId") String ownerUserId,
+                                                   @Param("favorite") Boolean favorite,
+                                                   @Param("pinned") Boolean pinned,
+                                                   @Param("category") String category,
+                                                   @Param("ids") Collection<String> ids);
+
+    // --------------------------------------------------
+    // Sletting (set-basert; se RecipeDeleteMode)
+    // --------------------------------------------------
+
+    @Query("select r.id from RecipeEntity r where r.ownerUserId = :ownerUserId and r.id in :ids")
+    List<String> findOwnedIds(@Param("ownerUserId") String ownerUserId, @Param("ids") Collection<String> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update RecipeEntity r set r.deletedAt = :deletedAt where r.id in :ids")
+    int markDeleted(@Param("ids") Collection<String> ids, @Param("deletedAt") LocalDateTime deletedAt);
+
+    // Native: @SQLRestriction skjuler myk-slettede rader for JPQL
+    @Query(value = """
+            SELECT id FROM recipes
+            WHERE deleted_at IS NOT NULL AND owner_user_id = :ownerUserId AND id IN (:ids)
+            """, nativeQuery = true)
+    List<String> findSoftDeletedIds(@Param("ownerUserId") String ownerUserId, @Param("ids") Collection<String> ids);
+
+    // Native: også myk-slettede rader holder på id-en, og en tombstone gjør det til den er ryddet
+    // (recipe_id er primærnøkkel der, og synken til den andre brukeren trenger den)
+    @Query(value = """
+            SELECT id FROM recipes WHERE owner_user_id <> :ownerUserId AND id IN (:ids)
+            UNION
+            SELECT recipe_id FROM recipe_tombstones WHERE owner_user_id <> :ownerUserId AND recipe_id IN (:ids)
+            """, nativeQuery = true)
+    List<String> findIdsOwnedByOthers(@Param("ownerUserId") String ownerUserId, @Param("ids") Collection<String> ids);
+
+    @Query(value = """
+            SELECT id FROM recipes
+            WHERE deleted_at IS NOT NULL AND deleted_at < :deletedBefore
+            ORDER BY deleted_at
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<String> findSoftDeletedBefore(@Param("deletedBefore") LocalDateTime deletedBefore, @Param("limit") int limit);
+
+    // Barn først; ingen FK-kaskade i skjemaet
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM recipe_ingredients WHERE recipe_id IN (:ids)", nativeQuery = true)
+    int deleteIngredientRows(@Param("ids") Collection<String> ids);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM recipe_steps WHERE recipe_id IN (:ids)", nativeQuery = true)
+    int deleteStepRows(@Param("ids") Collection<String> ids);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM recipe_categories WHERE recipe_id IN (:ids)", nativeQuery = true)
+    int deleteCategoryRows(@Param("ids") Collection<String> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM recipes WHERE id IN (:ids)", nativeQuery = true)
+    int deleteRecipeRows(@Param("ids") Collection<String> ids);
+}
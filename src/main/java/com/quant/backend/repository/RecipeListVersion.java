@@ -0,0 +1,11 @@
+package com.quant.backend.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Aggregat over en brukers oppskrifter (grunnlag for ETag på listen).
+ *
+ * count fanger slettinger, maxUpdatedAt fanger redigeringer og flagg/cover-endringer,
+ * maxLastViewedAt fanger visninger.
+ */
+public record RecipeListVersion(Long count, LocalDateTime maxUpdatedAt, LocalDateTime maxLastViewedAt) {}
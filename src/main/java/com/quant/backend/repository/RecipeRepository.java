@@ -1,24 +1,77 @@
 package com.quant.backend.repository;
 
+import com.quant.backend.dto.CursorPageDto;
 import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.dto.RecipeFacetsDto;
+import com.quant.backend.dto.RecipeSummaryDto;
+import com.quant.backend.dto.RecipeTombstoneDto;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface RecipeRepository {
 
     List<RecipeDto> findAllForUser(String userId);
 
+    // nyeste først, på (updatedAt, id)
+    CursorPageDto<RecipeDto> findPageForUser(String userId, RecipeCursor cursor, int limit);
+
+    List<RecipeSummaryDto> findSummariesForUser(String userId);
+
+    CursorPageDto<RecipeSummaryDto> findSummaryPageForUser(String userId, RecipeCursor cursor, int limit);
+
     Optional<RecipeDto> findByIdForUser(String userId, String id);
 
+    // Strømmer alle oppskriftene (nyeste først) uten å holde listen i minnet; returnerer antall
+    long forEachForUser(String userId, Consumer<RecipeDto> consumer);
+
+    // Ukjente/andres id-er hoppes over; rekkefølgen er udefinert
+    List<RecipeSummaryDto> findSummariesByIdsForUser(String userId, Collection<String> ids);
+
     RecipeDto saveForUser(String userId, RecipeDto recipe);
 
+    // Lagrer en chunk i én transaksjon (JDBC-batchet); id-er som tilhører andre brukere avvises
+    List<RecipeSaveResult> saveAllForUser(String userId, List<RecipeDto> recipes);
+
     boolean deleteByIdForUser(String userId, String id);
 
+    // Set-basert; returnerer id-ene som faktisk ble slettet (ukjente/andres hoppes over)
+    List<String> deleteAllForUser(String userId, Collection<String> ids);
+
+    // Fjerner inntil limit myk-slettede oppskrifter slettet før deletedBefore; returnerer antall
+    int purgeSoftDeleted(LocalDateTime deletedBefore, int limit);
+
     boolean existsByIdForUser(String userId, String id);
 
-    List<RecipeDto> findAllAdmin();
+    // Enkeltfelt-oppdateringer; false hvis oppskriften ikke finnes for brukeren.
+    // changedAt skrives også til updatedAt, slik at ETag/synk ser endringen.
+    boolean setFavoriteForUser(String userId, String id, boolean favorite, LocalDateTime changedAt);
+    boolean setPinnedForUser(String userId, String id, boolean pinned, LocalDateTime changedAt);
+    boolean setCoverImageForUser(String userId, String id, String coverImageId, LocalDateTime changedAt);
+
+    // Delta-synk: endret etter (updatedAt, id) og slettinger etter (deletedAt, recipeId), eldste først
+    List<RecipeDto> findChangedAfterForUser(String userId, RecipeCursor after, int limit);
+    List<RecipeTombstoneDto> findTombstonesAfterForUser(String userId, RecipeCursor after, int limit);
+
+    // Fasett-tellinger; null-filtre er av, restrictToIds (søketreff) null = ingen begrensning
+    RecipeFacetsDto findFacetsForUser(String userId, Boolean favorite, Boolean pinned, String category,
+                                      Collection<String> restrictToIds);
+
+    // Billige versjonsstempler for conditional GET
+    Optional<RecipeVersion> findVersionForUser(String userId, String id);
+    RecipeListVersion findListVersionForUser(String userId);
+
+    // Admin leser alltid sidevis eller strømmende; hele tabellen lastes aldri i minnet
+    CursorPageDto<RecipeDto> findPageAdmin(RecipeCursor cursor, int limit);
+    CursorPageDto<OwnedRecipe> findOwnedPageAdmin(RecipeAdminFilter filter, RecipeCursor cursor, int limit);
+    long forEachAdmin(RecipeAdminFilter filter, Consumer<OwnedRecipe> consumer);
+    CursorPageDto<RecipeSummaryDto> findSummaryPageAdmin(RecipeCursor cursor, int limit);
     Optional<RecipeDto> findByIdAdmin(String id);
+    Optional<RecipeVersion> findVersionAdmin(String id);
+    RecipeListVersion findListVersionAdmin();
     RecipeDto saveAdmin(RecipeDto recipe);      // bevarer owner_user_id hvis finnes
     boolean deleteByIdAdmin(String id);
 }
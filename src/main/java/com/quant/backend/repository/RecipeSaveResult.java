@@ -0,0 +1,13 @@
+package com.quant.backend.repository;
+
+import com.quant.backend.dto.RecipeDto;
+
+/**
+ * Utfall per oppskrift fra {@link RecipeRepository#saveAllForUser}, i samme rekkefølge som input.
+ *
+ * REJECTED betyr at id-en tilhører en annen bruker; recipe er da input uendret.
+ */
+public record RecipeSaveResult(Status status, RecipeDto recipe) {
+
+    public enum Status { CREATED, UPDATED, REJECTED }
+}
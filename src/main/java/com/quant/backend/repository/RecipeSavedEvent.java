@@ -0,0 +1,9 @@
+package com.quant.backend.repository;
+
+import com.quant.backend.dto.RecipeDto;
+
+/**
+ * Publiseres av JpaRecipeRepository når en oppskrift er lagret (opprettet eller endret innhold).
+ * Flagg/cover-oppdateringer og visninger publiserer ikke, siden de ikke endrer søkbart innhold.
+ */
+public record RecipeSavedEvent(String ownerUserId, RecipeDto recipe) {}
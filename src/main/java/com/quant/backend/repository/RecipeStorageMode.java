@@ -0,0 +1,15 @@
+package com.quant.backend.repository;
+
+/**
+ * Hvordan ingredienser, steg og kategorier lagres for en oppskrift.
+ *
+ * COLLECTIONS: én rad per element i recipe_ingredients / recipe_steps / recipe_categories.
+ * DOCUMENT: ett JSON-dokument i recipes.content_doc. Kategorier speiles fortsatt til
+ * recipe_categories, siden de spørres relasjonelt.
+ *
+ * Lesing støtter alltid begge: rader med content_doc leses fra dokumentet, resten fra tabellene.
+ */
+public enum RecipeStorageMode {
+    COLLECTIONS,
+    DOCUMENT
+}
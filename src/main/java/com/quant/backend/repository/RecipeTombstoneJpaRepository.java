@@ -0,0 +1,38 @@
+package com.quant.backend.repository;
+
+import com.quant.backend.entity.RecipeTombstoneEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface RecipeTombstoneJpaRepository extends JpaRepository<RecipeTombstoneEntity, String> {
+
+    // Keyset på (deletedAt, recipeId), eldste først, som findChangedAfterByOwner
+    @Query("""
+            select t from RecipeTombstoneEntity t
+            where t.ownerUserId = :ownerUserId
+              and (t.deletedAt > :deletedAt or (t.deletedAt = :deletedAt and t.recipeId > :recipeId))
+            order by t.deletedAt asc, t.recipeId asc
+            """)
+    List<RecipeTombstoneEntity> findForOwnerAfter(@Param("ownerUserId") String ownerUserId,
+                                                 @Param("deletedAt") LocalDateTime deletedAt,
+                                                 @Param("recipeId") String recipeId,
+                                                 Limit limit);
+
+    // Oppskriften er lagret på nytt med samme id (f.eks. offline-klient som gjenoppretter), eller
+    // slettes igjen. Begrenset til eieren så en annen brukers slettinger ikke forsvinner fra synken
+    @Modifying
+    @Query("delete from RecipeTombstoneEntity t where t.ownerUserId = :ownerUserId and t.recipeId in :recipeIds")
+    int deleteByOwnerAndRecipeIds(@Param("ownerUserId") String ownerUserId,
+                                  @Param("recipeIds") Collection<String> recipeIds);
+
+    @Modifying
+    @Query("delete from RecipeTombstoneEntity t where t.deletedAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,9 @@
+package com.quant.backend.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Skalarfeltene som bestemmer om en enkelt oppskrift har endret seg (grunnlag for ETag).
+ * Fylles av en projeksjon som ikke leser child-tabellene.
+ */
+public record RecipeVersion(LocalDateTime updatedAt, LocalDateTime lastViewedAt, Integer viewCount) {}
@@ -0,0 +1,12 @@
+package com.quant.backend.repository;
+
+import java.util.List;
+
+/**
+ * Publiseres av RecipeViewBuffer etter at en batch med visninger er skrevet. Tellerne oppdateres
+ * med JDBC utenom repositoryet, så cachen må få vite hvilke oppskrifter som er endret.
+ */
+public record RecipeViewsFlushedEvent(List<ViewedRecipe> recipes) {
+
+    public record ViewedRecipe(String ownerUserId, String recipeId) {}
+}
@@ -0,0 +1,306 @@
+package com.quant.backend.search;
+
+import com.quant.backend.dto.IngredientDto;
+import com.quant.backend.dto.RecipeDto;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ingrediens -> oppskrift-indeks for "lag mat av det jeg har".
+ *
+ * Hver eier får tette ordinaler (0..n) for oppskriftene sine, og hver normaliserte ingrediens en
+ * RoaringBitmap over ordinalene. Dekning regnes ved å telle bitmap-treff inn i en int-tabell per
+ * ordinal, så spørringen rører verken databasen eller ingredienslistene til oppskrifter uten treff.
+ *
+ * Ingredienser normaliseres med {@link RecipeTextAnalyzer} ("Røde løker" -> "rød løk"). Et generelt
+ * ord dekker alle varianter med samme hode ("løk" dekker "rød løk"), og en variant dekker det
+ * generelle ("rød løk" dekker "løk"). Basisvarer (salt, pepper, vann ...) telles ikke med.
+ */
+@Component
+public class IngredientIndex implements RecipeIndex {
+
+    private final Set<String> staples;
+    private final Map<String, OwnerIngredients> owners = new ConcurrentHashMap<>();
+
+    public IngredientIndex(@Value("${quant.recipes.cook-with.staples:salt,pepper,vann,water}") List<String> staples) {
+        Set<String> keys = new HashSet<>();
+        for (String staple : staples) {
+            String key = key(staple);
+            if (key != null) keys.add(key);
+        }
+        this.staples = keys;
+    }
+
+    /**
+     * @param recipeId  oppskriften
+     * @param matched   antall (ulike) ingredienser brukeren har
+     * @param total     antall (ulike) ingredienser oppskriften trenger, uten basisvarer
+     * @param missing   det som mangler, slik det står i oppskriften
+     */
+    public record Match(String recipeId, int matched, int total, List<String> missing) {
+        public double coverage() {
+            return total == 0 ? 0 : (double) matched / total;
+        }
+    }
+
+    @Override
+    public void index(String ownerUserId, RecipeDto recipe) {
+        if (ownerUserId == null || recipe == null || recipe.getId() == null) {
+            return;
+        }
+
+        // Én nøkkel per ulike ingrediens; første skrivemåte brukes ved visning
+        Map<String, String> items = new LinkedHashMap<>();
+        if (recipe.getIngredients() != null) {
+            for (IngredientDto ing : recipe.getIngredients()) {
+                String key = key(ing.getItem());
+                if (key != null && !staples.contains(key)) {
+                    items.putIfAbsent(key, ing.getItem().trim());
+                }
+            }
+        }
+
+        OwnerIngredients index = owners.computeIfAbsent(ownerUserId, k -> new OwnerIngredients());
+        if (items.isEmpty()) {
+            index.remove(recipe.getId());
+        } else {
+            index.put(recipe.getId(), recipe.getUpdatedAt(), items);
+        }
+    }
+
+    @Override
+    public void remove(String ownerUserId, String recipeId) {
+        OwnerIngredients index = owners.get(ownerUserId);
+        if (index != null) {
+            index.remove(recipeId);
+        }
+    }
+
+    @Override
+    public void clear() {
+        owners.clear();
+    }
+
+    /**
+     * Eierens oppskrifter som bruker minst én av ingrediensene, best dekket først.
+     *
+     * @param maxMissing hopp over oppskrifter som mangler flere enn dette (null = ingen grense)
+     */
+    public List<Match> match(String ownerUserId, Collection<String> available, int limit, Integer maxMissing) {
+        OwnerIngredients index = owners.get(ownerUserId);
+        if (index == null || available == null || limit <= 0) {
+            return List.of();
+        }
+
+        Set<String> keys = new HashSet<>();
+        for (String item : available) {
+            String key = key(item);
+            if (key != null) keys.add(key);
+        }
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        return index.match(keys, limit, maxMissing);
+    }
+
+    // Normalisert ingrediensnøkkel, eller null hvis ingenting er igjen (tall, stoppord)
+    static String key(String item) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : RecipeTextAnalyzer.tokens(item)) {
+            if (!Character.isDigit(token.charAt(0))) {
+                tokens.add(token);
+            }
+        }
+        return tokens.isEmpty() ? null : String.join(" ", tokens);
+    }
+
+    private static String head(String key) {
+        int space = key.lastIndexOf(' ');
+        return space < 0 ? key : key.substring(space + 1);
+    }
+
+    // --------------------------------------------------
+    // Per-eier indeks
+    // --------------------------------------------------
+
+    private static final class OwnerIngredients {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final Map<String, LocalDateTime> versions = new HashMap<>();
+        private final List<String> recipeIds = new ArrayList<>();         // ordinal -> id (null = ledig)
+        private final List<String[]> keysByOrdinal = new ArrayList<>();
+        private final List<String[]> itemsByOrdinal = new ArrayList<>();
+        private final ArrayDeque<Integer> freeOrdinals = new ArrayDeque<>();
+
+        private final Map<String, RoaringBitmap> postings = new HashMap<>();
+        private final Map<String, Set<String>> keysByHead = new HashMap<>();
+
+        void put(String recipeId, LocalDateTime updatedAt, Map<String, String> items) {
+            lock.writeLock().lock();
+            try {
+                // Som i søkeindeksen: ikke la gjenoppbyggingen overskrive en nyere lagring
+                LocalDateTime existing = versions.get(recipeId);
+                if (existing != null && updatedAt != null && existing.isAfter(updatedAt)) {
+                    return;
+                }
+                versions.put(recipeId, updatedAt);
+
+                Integer ordinal = ordinals.get(recipeId);
+                if (ordinal != null) {
+                    unlink(ordinal);
+                } else {
+                    // Gjenbruk ledige ordinaler, så bitmapene holder seg tette
+                    ordinal = freeOrdinals.isEmpty() ? recipeIds.size() : freeOrdinals.pop();
+                    ordinals.put(recipeId, ordinal);
+                }
+
+                String[] keys = items.keySet().toArray(new String[0]);
+                String[] display = items.values().toArray(new String[0]);
+                set(recipeIds, ordinal, recipeId);
+                set(keysByOrdinal, ordinal, keys);
+                set(itemsByOrdinal, ordinal, display);
+
+                for (String key : keys) {
+                    postings.computeIfAbsent(key, k -> new RoaringBitmap()).add(ordinal);
+                    keysByHead.computeIfAbsent(head(key), k -> new HashSet<>()).add(key);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String recipeId) {
+            lock.writeLock().lock();
+            try {
+                versions.remove(recipeId);
+                Integer ordinal = ordinals.remove(recipeId);
+                if (ordinal == null) return;
+
+                unlink(ordinal);
+                recipeIds.set(ordinal, null);
+                keysByOrdinal.set(ordinal, null);
+                itemsByOrdinal.set(ordinal, null);
+                freeOrdinals.push(ordinal);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void unlink(int ordinal) {
+            for (String key : keysByOrdinal.get(ordinal)) {
+                RoaringBitmap bitmap = postings.get(key);
+                if (bitmap == null) continue;
+                bitmap.remove(ordinal);
+                if (bitmap.isEmpty()) {
+                    postings.remove(key);
+                    Set<String> siblings = keysByHead.get(head(key));
+                    if (siblings != null) {
+                        siblings.remove(key);
+                        if (siblings.isEmpty()) keysByHead.remove(head(key));
+                    }
+                }
+            }
+        }
+
+        List<Match> match(Set<String> available, int limit, Integer maxMissing) {
+            lock.readLock().lock();
+            try {
+                Set<String> covered = coveredKeys(available);
+                if (covered.isEmpty()) {
+                    return List.of();
+                }
+
+                // Hver oppskrift har hver nøkkel maks én gang, så summen er antall dekkede ingredienser
+                int[] matched = new int[recipeIds.size()];
+                RoaringBitmap candidates = new RoaringBitmap();
+                for (String key : covered) {
+                    RoaringBitmap bitmap = postings.get(key);
+                    bitmap.forEach((int ordinal) -> matched[ordinal]++);
+                    candidates.or(bitmap);
+                }
+
+                Comparator<Match> order = Comparator
+                        .comparingDouble(Match::coverage)
+                        .thenComparing(m -> -(m.total() - m.matched()))
+                        .thenComparingInt(Match::matched);
+
+                // Min-heap på rangering; holder bare de beste `limit`
+                PriorityQueue<Match> top = new PriorityQueue<>(order);
+                candidates.forEach((int ordinal) -> {
+                    int total = keysByOrdinal.get(ordinal).length;
+                    int missing = total - matched[ordinal];
+                    if (maxMissing != null && missing > maxMissing) return;
+
+                    top.add(new Match(recipeIds.get(ordinal), matched[ordinal], total, null));
+                    if (top.size() > limit) top.poll();
+                });
+
+                List<Match> ranked = new ArrayList<>(top.size());
+                while (!top.isEmpty()) {
+                    ranked.add(withMissing(top.poll(), covered));
+                }
+                Collections.reverse(ranked);
+                return ranked;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // Utvider brukerens ingredienser til nøklene de dekker i denne eierens vokabular
+        private Set<String> coveredKeys(Set<String> available) {
+            Set<String> covered = new HashSet<>();
+            for (String key : available) {
+                if (postings.containsKey(key)) covered.add(key);
+
+                String head = head(key);
+                if (head.equals(key)) {
+                    // Generelt ord: dekker alle varianter ("løk" -> "rød løk", "vårløk" er et annet hode)
+                    covered.addAll(keysByHead.getOrDefault(head, Set.of()));
+                } else if (postings.containsKey(head)) {
+                    // Variant dekker det generelle ("rød løk" -> "løk")
+                    covered.add(head);
+                }
+            }
+            return covered;
+        }
+
+        private Match withMissing(Match match, Set<String> covered) {
+            int ordinal = ordinals.get(match.recipeId());
+            String[] keys = keysByOrdinal.get(ordinal);
+            String[] items = itemsByOrdinal.get(ordinal);
+
+            List<String> missing = new ArrayList<>();
+            for (int i = 0; i < keys.length; i++) {
+                if (!covered.contains(keys[i])) missing.add(items[i]);
+            }
+            return new Match(match.recipeId(), match.matched(), match.total(), missing);
+        }
+
+        private static <T> void set(List<T> list, int index, T value) {
+            if (index == list.size()) {
+                list.add(value);
+            } else {
+                list.set(index, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.quant.backend.search;
+
+import com.quant.backend.dto.RecipeDto;
+
+/**
+ * En inkrementell in-memory indeks over oppskrifter, holdt i synk av {@link RecipeIndexer}.
+ *
+ * Implementasjonene må tåle at samme oppskrift indekseres flere ganger, og at en eldre versjon
+ * (fra gjenoppbyggingen ved oppstart) kommer etter en nyere (fra en lagring).
+ */
+public interface RecipeIndex {
+
+    void index(String ownerUserId, RecipeDto recipe);
+
+    void remove(String ownerUserId, String recipeId);
+
+    void clear();
+}
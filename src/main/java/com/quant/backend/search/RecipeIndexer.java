@@ -0,0 +1,113 @@
+package com.quant.backend.search;
+
+import com.quant.backend.dto.CursorPageDto;
+import com.quant.backend.repository.OwnedRecipe;
+import com.quant.backend.repository.RecipeAdminFilter;
+import com.quant.backend.repository.RecipeCursor;
+import com.quant.backend.repository.RecipeDeletedEvent;
+import com.quant.backend.repository.RecipeRepository;
+import com.quant.backend.repository.RecipeSavedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Holder alle {@link RecipeIndex}-er i synk med databasen.
+ *
+ * Lagringer/slettinger kommer som events fra JpaRecipeRepository og brukes først etter commit
+ * (en rullet-tilbake lagring skal ikke bli søkbar). Ved oppstart bygges indeksene fra bunnen
+ * i en egen tråd; søk mens den pågår kan mangle eldre oppskrifter, men blokkerer ikke.
+ *
+ * En side gjenoppbyggingen har lest kan inneholde en oppskrift som slettes før siden er indeksert.
+ * Slettinger under gjenoppbyggingen huskes derfor, og de oppskriftene hoppes over.
+ */
+@Component
+public class RecipeIndexer {
+
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    private record RecipeKey(String ownerUserId, String recipeId) {}
+
+    private final RecipeRepository recipeRepository;
+    private final List<RecipeIndex> indexes;
+
+    // Slettinger mens rebuild() pågår (null ellers); lesing og endring under rebuildLock
+    private final Object rebuildLock = new Object();
+    private Set<RecipeKey> removedDuringRebuild;
+
+    public RecipeIndexer(RecipeRepository recipeRepository, List<RecipeIndex> indexes) {
+        this.recipeRepository = recipeRepository;
+        this.indexes = indexes;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSaved(RecipeSavedEvent event) {
+        for (RecipeIndex index : indexes) {
+            index.index(event.ownerUserId(), event.recipe());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeleted(RecipeDeletedEvent event) {
+        synchronized (rebuildLock) {
+            if (removedDuringRebuild != null) {
+                removedDuringRebuild.add(new RecipeKey(event.ownerUserId(), event.recipeId()));
+            }
+            for (RecipeIndex index : indexes) {
+                index.remove(event.ownerUserId(), event.recipeId());
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        Thread thread = new Thread(this::rebuild, "recipe-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        int count = 0;
+
+        synchronized (rebuildLock) {
+            removedDuringRebuild = new HashSet<>();
+        }
+
+        try {
+            indexes.forEach(RecipeIndex::clear);
+
+            RecipeCursor cursor = null;
+            do {
+                CursorPageDto<OwnedRecipe> page = recipeRepository.findOwnedPageAdmin(RecipeAdminFilter.NONE, cursor, REBUILD_PAGE_SIZE);
+                for (OwnedRecipe owned : page.getItems()) {
+                    // Under låsen: en sletting kommer enten før (og hoppes over) eller etter (og fjerner den)
+                    synchronized (rebuildLock) {
+                        if (removedDuringRebuild.contains(new RecipeKey(owned.ownerUserId(), owned.recipe().getId()))) {
+                            continue;
+                        }
+                        for (RecipeIndex index : indexes) {
+                            index.index(owned.ownerUserId(), owned.recipe());
+                        }
+                    }
+                }
+                count += page.getItems().size();
+                cursor = RecipeCursor.decode(page.getNextCursor());
+            } while (cursor != null);
+
+            System.err.println("Recipe indexes rebuilt: " + count + " recipes in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            System.err.println("Recipe index rebuild failed after " + count + " recipes: " + e.getMessage());
+        } finally {
+            synchronized (rebuildLock) {
+                removedDuringRebuild = null;
+            }
+        }
+    }
+}
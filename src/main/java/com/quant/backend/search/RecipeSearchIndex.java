@@ -0,0 +1,231 @@
+package com.quant.backend.search;
+
+import com.quant.backend.dto.IngredientDto;
+import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.dto.RecipeStepDto;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Invertert fulltekstindeks over tittel, beskrivelse, ingredienser og steg, én per eier.
+ *
+ * Hvert dokument lagres som term -> vektet frekvens (tittel teller mest, steg minst), og
+ * rangeres med BM25-aktig metning og idf innenfor eierens egne oppskrifter. Siste ord i
+ * spørringen prefiks-matches, så "tom" finner "tomater" mens man skriver.
+ */
+@Component
+public class RecipeSearchIndex implements RecipeIndex {
+
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float INGREDIENT_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float STEP_WEIGHT = 0.5f;
+
+    // Metning: hvor raskt gjentatte treff i samme oppskrift slutter å gi mer poeng
+    private static final double SATURATION = 1.2;
+    private static final double PREFIX_FACTOR = 0.7;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+
+    private final Map<String, OwnerIndex> owners = new ConcurrentHashMap<>();
+
+    @Override
+    public void index(String ownerUserId, RecipeDto recipe) {
+        if (ownerUserId == null || recipe == null || recipe.getId() == null) {
+            return;
+        }
+        owners.computeIfAbsent(ownerUserId, k -> new OwnerIndex())
+                .put(recipe.getId(), recipe.getUpdatedAt(), termWeights(recipe));
+    }
+
+    @Override
+    public void remove(String ownerUserId, String recipeId) {
+        OwnerIndex index = owners.get(ownerUserId);
+        if (index != null) {
+            index.remove(recipeId);
+        }
+    }
+
+    @Override
+    public void clear() {
+        owners.clear();
+    }
+
+    /**
+     * Rangerte oppskrift-id-er for eieren, beste først. Tom liste hvis spørringen ikke gir termer.
+     */
+    public List<String> search(String ownerUserId, String query, int limit) {
+        OwnerIndex index = owners.get(ownerUserId);
+        List<String> terms = RecipeTextAnalyzer.tokens(query);
+        if (index == null || terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        return index.search(terms, limit);
+    }
+
+    // --------------------------------------------------
+    // Dokument -> termer
+    // --------------------------------------------------
+
+    private static Map<String, Float> termWeights(RecipeDto recipe) {
+        Map<String, Float> weights = new HashMap<>();
+
+        addField(weights, recipe.getTitle(), TITLE_WEIGHT);
+        addField(weights, recipe.getDescription(), DESCRIPTION_WEIGHT);
+
+        if (recipe.getIngredients() != null) {
+            for (IngredientDto ing : recipe.getIngredients()) {
+                addField(weights, ing.getItem(), INGREDIENT_WEIGHT);
+            }
+        }
+        if (recipe.getSteps() != null) {
+            for (RecipeStepDto step : recipe.getSteps()) {
+                addField(weights, step.getInstruction(), STEP_WEIGHT);
+            }
+        }
+        return weights;
+    }
+
+    private static void addField(Map<String, Float> weights, String text, float weight) {
+        for (String term : RecipeTextAnalyzer.tokens(text)) {
+            weights.merge(term, weight, Float::sum);
+        }
+    }
+
+    // --------------------------------------------------
+    // Per-eier indeks
+    // --------------------------------------------------
+
+    private record Doc(LocalDateTime updatedAt, Map<String, Float> terms) {}
+
+    private record Hit(String recipeId, double score) {}
+
+    private static final class OwnerIndex {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, Doc> docs = new HashMap<>();
+        // Sortert, så prefiks-oppslag er et subMap-område
+        private final NavigableMap<String, Map<String, Float>> postings = new TreeMap<>();
+
+        void put(String recipeId, LocalDateTime updatedAt, Map<String, Float> terms) {
+            lock.writeLock().lock();
+            try {
+                Doc existing = docs.get(recipeId);
+                // Gjenoppbyggingen kan levere en eldre versjon enn den en lagring nettopp indekserte
+                if (existing != null && existing.updatedAt() != null && updatedAt != null
+                        && existing.updatedAt().isAfter(updatedAt)) {
+                    return;
+                }
+                if (existing != null) {
+                    unlink(recipeId, existing);
+                }
+                docs.put(recipeId, new Doc(updatedAt, terms));
+                terms.forEach((term, weight) ->
+                        postings.computeIfAbsent(term, k -> new HashMap<>()).put(recipeId, weight));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String recipeId) {
+            lock.writeLock().lock();
+            try {
+                Doc existing = docs.remove(recipeId);
+                if (existing != null) {
+                    unlink(recipeId, existing);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void unlink(String recipeId, Doc doc) {
+            for (String term : doc.terms().keySet()) {
+                Map<String, Float> posting = postings.get(term);
+                if (posting == null) continue;
+                posting.remove(recipeId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+
+        List<String> search(List<String> terms, int limit) {
+            lock.readLock().lock();
+            try {
+                int docCount = docs.size();
+                Map<String, double[]> scores = new HashMap<>(); // id -> {score, antall treffede termer}
+
+                for (int i = 0; i < terms.size(); i++) {
+                    boolean last = i == terms.size() - 1;
+                    Map<String, Double> termScores = scoreTerm(terms.get(i), last, docCount);
+
+                    termScores.forEach((id, score) -> {
+                        double[] acc = scores.computeIfAbsent(id, k -> new double[2]);
+                        acc[0] += score;
+                        acc[1] += 1;
+                    });
+                }
+
+                // Oppskrifter som treffer alle ordene skal komme før de som bare treffer noen
+                PriorityQueue<Hit> top = new PriorityQueue<>((a, b) -> Double.compare(a.score(), b.score()));
+                scores.forEach((id, acc) -> {
+                    double coverage = acc[1] / terms.size();
+                    top.add(new Hit(id, acc[0] * coverage * coverage));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                });
+
+                List<String> ranked = new ArrayList<>(top.size());
+                while (!top.isEmpty()) {
+                    ranked.add(top.poll().recipeId());
+                }
+                Collections.reverse(ranked);
+                return ranked;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // Beste treff per oppskrift for én spørreterm (eksakt, eller prefiks hvis siste ord)
+        private Map<String, Double> scoreTerm(String term, boolean prefix, int docCount) {
+            Map<String, Double> best = new HashMap<>();
+
+            addPostingScores(best, postings.get(term), docCount, 1.0);
+
+            if (prefix) {
+                int expansions = 0;
+                for (Map.Entry<String, Map<String, Float>> e : postings.tailMap(term, false).entrySet()) {
+                    if (!e.getKey().startsWith(term) || expansions++ >= MAX_PREFIX_EXPANSIONS) break;
+                    addPostingScores(best, e.getValue(), docCount, PREFIX_FACTOR);
+                }
+            }
+            return best;
+        }
+
+        private static void addPostingScores(Map<String, Double> best, Map<String, Float> posting,
+                                             int docCount, double factor) {
+            if (posting == null || posting.isEmpty()) {
+                return;
+            }
+            int df = posting.size();
+            double idf = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+
+            posting.forEach((id, weight) -> {
+                double score = factor * idf * (weight * (SATURATION + 1)) / (weight + SATURATION);
+                best.merge(id, score, Math::max);
+            });
+        }
+    }
+}
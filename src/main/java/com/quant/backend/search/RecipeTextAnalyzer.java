@@ -0,0 +1,103 @@
+package com.quant.backend.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Tokenisering for norsk og engelsk oppskriftstekst.
+ *
+ * - små bokstaver, diakritiske tegn fjernes (é -> e), men æ/ø/å beholdes
+ * - deler på alt som ikke er bokstav eller siffer
+ * - fjerner vanlige stoppord på begge språk
+ * - lett suffiks-stemming (løken -> løk, tomater -> tomat, onions -> onion)
+ *
+ * Samme analyse brukes på dokumenter og spørringer, så konsistens er viktigere enn lingvistisk presisjon.
+ */
+public final class RecipeTextAnalyzer {
+
+    private static final Set<String> STOPWORDS = Set.of(
+            // norsk
+            "og", "i", "på", "til", "med", "en", "et", "ei", "den", "det", "de", "av", "for",
+            "som", "er", "å", "fra", "eller", "om", "så", "etter", "ca",
+            // engelsk
+            "a", "an", "and", "the", "of", "to", "in", "with", "or", "on", "at", "by", "into", "about"
+    );
+
+    // Lengste først; stammen må ha minst MIN_STEM tegn igjen
+    private static final String[] SUFFIXES = {
+            "heten", "ende", "ene", "ane", "ing", "ies", "er", "en", "et", "es", "ed", "a", "e", "s"
+    };
+
+    private static final int MIN_STEM = 3;
+
+    private RecipeTextAnalyzer() {}
+
+    public static List<String> tokens(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return out;
+        }
+
+        String folded = fold(text);
+        StringBuilder current = new StringBuilder();
+
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(c);
+            } else if (!current.isEmpty()) {
+                addToken(out, current.toString());
+                current.setLength(0);
+            }
+        }
+        if (!current.isEmpty()) {
+            addToken(out, current.toString());
+        }
+
+        return out;
+    }
+
+    public static String stem(String token) {
+        if (token.length() <= MIN_STEM || Character.isDigit(token.charAt(0))) {
+            return token;
+        }
+
+        if (token.endsWith("ies") && token.length() - 3 >= MIN_STEM) {
+            return token.substring(0, token.length() - 3) + "y";
+        }
+
+        for (String suffix : SUFFIXES) {
+            if (token.endsWith(suffix) && token.length() - suffix.length() >= MIN_STEM) {
+                return token.substring(0, token.length() - suffix.length());
+            }
+        }
+        return token;
+    }
+
+    private static void addToken(List<String> out, String token) {
+        if (STOPWORDS.contains(token)) {
+            return;
+        }
+        out.add(stem(token));
+    }
+
+    private static String fold(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(lower.length());
+
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (c < 128 || c == 'æ' || c == 'ø' || c == 'å') {
+                sb.append(c);
+                continue;
+            }
+            // Dekomponer og behold bare grunntegnet (é -> e, ü -> u)
+            String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            sb.append(decomposed.charAt(0));
+        }
+        return sb.toString();
+    }
+}
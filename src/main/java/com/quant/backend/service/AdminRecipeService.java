@@ -0,0 +1,160 @@
+package com.quant.backend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.quant.backend.auth.AdminAccess;
+import com.quant.backend.auth.QuantPrincipal;
+import com.quant.backend.dto.CursorPageDto;
+import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.repository.OwnedRecipe;
+import com.quant.backend.repository.RecipeAdminFilter;
+import com.quant.backend.repository.RecipeCursor;
+import com.quant.backend.repository.RecipeRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Admin-lesing på tvers av alle brukere: sidevis (keyset) eller strømmende eksport.
+ *
+ * Ingenting her holder mer enn én side / én chunk i minnet, uansett hvor stor tabellen er.
+ */
+@Service
+public class AdminRecipeService {
+
+    public enum ExportFormat { NDJSON, CSV }
+
+    private static final String CSV_HEADER =
+            "id,owner_user_id,title,servings,favorite,pinned,view_count,ingredients,steps,categories,created_at,updated_at";
+
+    private final RecipeRepository recipeRepository;
+    private final AdminAccess adminAccess;
+    private final ObjectMapper objectMapper;
+
+    public AdminRecipeService(RecipeRepository recipeRepository,
+                              AdminAccess adminAccess,
+                              ObjectMapper objectMapper) {
+        this.recipeRepository = recipeRepository;
+        this.adminAccess = adminAccess;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<OwnedRecipe> getPage(RecipeAdminFilter filter, String cursor, Integer limit) {
+        ensureAdmin();
+        return recipeRepository.findOwnedPageAdmin(filter, RecipeCursor.decode(cursor), RecipeService.clampPageSize(limit));
+    }
+
+    public StreamingResponseBody export(RecipeAdminFilter filter, ExportFormat format) {
+        ensureAdmin();
+
+        return switch (format) {
+            case NDJSON -> out -> writeNdjson(filter, out);
+            case CSV -> out -> writeCsv(filter, out);
+        };
+    }
+
+    // --------------------------------------------------
+    // NDJSON: {"ownerUserId":"...","recipe":{...}} per linje
+    // --------------------------------------------------
+
+    private void writeNdjson(RecipeAdminFilter filter, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(OwnedRecipe.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gen.setRootValueSeparator(null);
+
+            forEach(filter, owned -> {
+                try {
+                    writer.writeValue(gen, owned);
+                    gen.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    // --------------------------------------------------
+    // CSV: én rad per oppskrift, samlinger som antall / kategorier med |
+    // --------------------------------------------------
+
+    private void writeCsv(RecipeAdminFilter filter, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write("\r\n");
+
+        forEach(filter, owned -> {
+            RecipeDto r = owned.recipe();
+            List<String> categories = r.getMetadata() != null ? r.getMetadata().getCategories() : null;
+            try {
+                writer.write(String.join(",",
+                        csv(r.getId()),
+                        csv(owned.ownerUserId()),
+                        csv(r.getTitle()),
+                        csv(r.getServings()),
+                        csv(r.getFavorite()),
+                        csv(r.getPinned()),
+                        csv(r.getViewCount()),
+                        csv(r.getIngredients() != null ? r.getIngredients().size() : 0),
+                        csv(r.getSteps() != null ? r.getSteps().size() : 0),
+                        csv(categories != null ? String.join("|", categories) : null),
+                        csv(r.getCreatedAt()),
+                        csv(r.getUpdatedAt())
+                ));
+                writer.write("\r\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        writer.flush();
+    }
+
+    // RFC 4180: felt med komma, anførselstegn eller linjeskift pakkes inn, " dobles
+    private static String csv(Object value) {
+        if (value == null) return "";
+        String s = value.toString();
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return s;
+        }
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    private void forEach(RecipeAdminFilter filter, Consumer<OwnedRecipe> consumer) throws IOException {
+        try {
+            recipeRepository.forEachAdmin(filter, consumer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // typisk klienten som har lukket forbindelsen
+        }
+    }
+
+    // --------------------------------------------------
+    // Tilgang
+    // --------------------------------------------------
+
+    private void ensureAdmin() {
+        var auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth != null && auth.getPrincipal() instanceof QuantPrincipal qp ? qp.email() : null;
+        if (!adminAccess.isAdminEmail(email)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin only");
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.quant.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Skalerer ned og rekomprimerer bilder før de sendes til Claude: et 12 MP mobilbilde på 4–8 MB
+ * blir en JPEG på noen hundre kB med lengste side quant.import.image.max-dimension, som modellen
+ * uansett ville skalert ned selv. EXIF-orientering brukes, så bilder tatt på høykant ikke
+ * kommer frem liggende.
+ *
+ * Dekodingen kjøres på en egen begrenset pool (quant.import.image.workers) siden et stort bilde
+ * tar både CPU og minne. Klarer vi ikke å dekode bildet (f.eks. WebP, som ImageIO ikke leser),
+ * er poolen full eller det tar for lang tid, sendes originalen som før.
+ */
+@Component
+public class ImagePreprocessor {
+
+    public record PreparedImage(InputStreamSource image, String mediaType) {}
+
+    private final boolean enabled;
+    private final int maxDimension;
+    private final float jpegQuality;
+    private final boolean applyExifOrientation;
+    private final Duration timeout;
+    private final ThreadPoolExecutor executor;
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary originalBytes;
+    private final DistributionSummary processedBytes;
+    private final Counter bytesSaved;
+
+    public ImagePreprocessor(MeterRegistry meterRegistry,
+                             @Value("${quant.import.image.enabled:true}") boolean enabled,
+                             @Value("${quant.import.image.max-dimension:1568}") int maxDimension,
+                             @Value("${quant.import.image.jpeg-quality:0.85}") float jpegQuality,
+                             @Value("${quant.import.image.apply-exif-orientation:true}") boolean applyExifOrientation,
+                             @Value("${quant.import.image.workers:2}") int workers,
+                             @Value("${quant.import.image.queue-capacity:8}") int queueCapacity,
+                             @Value("${quant.import.image.timeout:10s}") Duration timeout) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxDimension = maxDimension;
+        this.jpegQuality = jpegQuality;
+        this.applyExifOrientation = applyExifOrientation;
+        this.timeout = timeout;
+
+        AtomicInteger threadNo = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                workers, workers,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "image-preprocess-" + threadNo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        this.originalBytes = DistributionSummary.builder("quant.import.image.bytes")
+                .description("Image size before and after preprocessing")
+                .baseUnit("bytes")
+                .tag("stage", "original")
+                .register(meterRegistry);
+        this.processedBytes = DistributionSummary.builder("quant.import.image.bytes")
+                .description("Image size before and after preprocessing")
+                .baseUnit("bytes")
+                .tag("stage", "processed")
+                .register(meterRegistry);
+        this.bytesSaved = Counter.builder("quant.import.image.bytes-saved")
+                .description("Bytes not sent to Claude thanks to preprocessing")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("quant.import.image.queued", executor, e -> e.getQueue().size())
+                .description("Images waiting for preprocessing")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returnerer bildet som skal sendes til Claude: en nedskalert JPEG, eller originalen hvis
+     * preprosessering er slått av, feiler eller ikke gir et mindre bilde.
+     */
+    public PreparedImage prepare(InputStreamSource image, String mediaType) {
+        PreparedImage original = new PreparedImage(image, mediaType);
+        if (!enabled) {
+            return original;
+        }
+
+        long start = System.nanoTime();
+        Future<byte[]> future;
+        try {
+            future = executor.submit(() -> process(image));
+        } catch (RejectedExecutionException e) {
+            record("rejected", start);
+            return original;
+        }
+
+        try {
+            byte[] processed = future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (processed == null) {
+                record("unsupported", start);
+                return original;
+            }
+
+            long originalSize = sizeOf(image);
+            if (originalSize >= 0 && processed.length >= originalSize) {
+                // Allerede lite nok; rekomprimering ville bare gjort det verre
+                record("unchanged", start);
+                return original;
+            }
+
+            if (originalSize >= 0) {
+                originalBytes.record(originalSize);
+                processedBytes.record(processed.length);
+                bytesSaved.increment(originalSize - processed.length);
+            }
+            record("processed", start);
+            return new PreparedImage(new ByteArrayResource(processed), "image/jpeg");
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            record("timeout", start);
+            return original;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            record("failed", start);
+            return original;
+        } catch (ExecutionException | IOException e) {
+            System.err.println("ImagePreprocessor: failed, sending original - " + e.getMessage());
+            record("failed", start);
+            return original;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // null = ImageIO kan ikke lese formatet
+    private byte[] process(InputStreamSource image) throws IOException {
+        int orientation = applyExifOrientation ? readExifOrientation(image) : 1;
+
+        BufferedImage decoded;
+        try (InputStream in = image.getInputStream();
+             ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            if (iis == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                // Subsampling allerede ved dekoding, så et 12 MP bilde aldri ligger i minnet i full størrelse
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / maxDimension);
+                param.setSourceSubsampling(step, step, 0, 0);
+                decoded = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        BufferedImage scaled = scaleAndOrient(decoded, orientation);
+        return encodeJpeg(scaled);
+    }
+
+    private BufferedImage scaleAndOrient(BufferedImage source, int orientation) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        int scaledWidth = Math.max(1, (int) Math.round(width * scale));
+        int scaledHeight = Math.max(1, (int) Math.round(height * scale));
+
+        // Orientering 5–8 bytter om bredde og høyde
+        boolean swap = orientation >= 5 && orientation <= 8;
+        int targetWidth = swap ? scaledHeight : scaledWidth;
+        int targetHeight = swap ? scaledWidth : scaledHeight;
+
+        AffineTransform transform = exifTransform(orientation, scaledWidth, scaledHeight);
+        transform.scale(scale, scale);
+
+        // JPEG har ingen alfakanal: gjennomsiktige PNG-er får hvit bakgrunn
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, targetWidth, targetHeight);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, transform, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    // Avbilder det skalerte bildet (w x h) slik at det står riktig vei, se EXIF-taggen 0x0112
+    private static AffineTransform exifTransform(int orientation, int w, int h) {
+        AffineTransform t = new AffineTransform();
+        switch (orientation) {
+            case 2 -> { t.translate(w, 0); t.scale(-1, 1); }
+            case 3 -> { t.translate(w, h); t.rotate(Math.PI); }
+            case 4 -> { t.translate(0, h); t.scale(1, -1); }
+            case 5 -> { t.rotate(Math.PI / 2); t.scale(1, -1); }
+            case 6 -> { t.translate(h, 0); t.rotate(Math.PI / 2); }
+            case 7 -> { t.scale(-1, 1); t.translate(-h, w); t.rotate(-Math.PI / 2); }
+            case 8 -> { t.translate(0, w); t.rotate(-Math.PI / 2); }
+            default -> { }
+        }
+        return t;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG writer available");
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Leser Orientation (0x0112) fra IFD0 i EXIF-segmentet (APP1) i en JPEG. Returnerer 1
+     * (normal) for alt annet enn JPEG med gyldig EXIF.
+     */
+    static int readExifOrientation(InputStreamSource image) {
+        try (DataInputStream in = new DataInputStream(image.getInputStream())) {
+            if (in.readUnsignedShort() != 0xFFD8) {
+                return 1;
+            }
+            while (true) {
+                int marker = in.readUnsignedShort();
+                // SOS/EOI: ingen flere metadata-segmenter
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA || marker == 0xFFD9) {
+                    return 1;
+                }
+                int length = in.readUnsignedShort() - 2;
+                if (length < 0) {
+                    return 1;
+                }
+                if (marker != 0xFFE1) {
+                    in.skipNBytes(length);
+                    continue;
+                }
+                byte[] segment = in.readNBytes(length);
+                if (segment.length == length && length > 14
+                        && segment[0] == 'E' && segment[1] == 'x' && segment[2] == 'i' && segment[3] == 'f') {
+                    return orientationFromTiff(segment, 6);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            return 1;
+        }
+    }
+
+    private static int orientationFromTiff(byte[] b, int tiff) {
+        boolean littleEndian = b[tiff] == 'I' && b[tiff + 1] == 'I';
+        int ifd = tiff + readInt(b, tiff + 4, littleEndian);
+        int entries = readShort(b, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (readShort(b, entry, littleEndian) == 0x0112) {
+                int value = readShort(b, entry + 8, littleEndian);
+                return value >= 1 && value <= 8 ? value : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] b, int pos, boolean littleEndian) {
+        int b0 = b[pos] & 0xFF;
+        int b1 = b[pos + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static int readInt(byte[] b, int pos, boolean littleEndian) {
+        int hi = readShort(b, littleEndian ? pos + 2 : pos, littleEndian);
+        int lo = readShort(b, littleEndian ? pos : pos + 2, littleEndian);
+        return (hi << 16) | lo;
+    }
+
+    private static long sizeOf(InputStreamSource image) throws IOException {
+        if (image instanceof MultipartFile file) {
+            return file.getSize();
+        }
+        if (image instanceof Resource resource) {
+            return resource.contentLength();
+        }
+        return -1;
+    }
+
+    private void record(String outcome, long startNanos) {
+        Timer.builder("quant.import.image.preprocess")
+                .description("Time spent preprocessing images before the Claude call")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,132 @@
+package com.quant.backend.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.quant.backend.dto.IngredientDto;
+import com.quant.backend.dto.RecipeStepDto;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Leser oppskrifts-JSON-en fra modellen bit for bit mens den strømmer inn (Jacksons ikke-blokkerende
+ * parser), og melder fra om felt så snart de er komplette: title/description/servings på toppnivå,
+ * og hver ingrediens og hvert steg når objektet er lukket.
+ *
+ * Én instans per import. Er teksten ikke gyldig JSON (f.eks. markdown rundt), slutter den bare å
+ * melde fra; det endelige svaret tolkes uansett av RecipeParserService.toRecipe.
+ */
+class IncrementalRecipeParser {
+
+    interface Listener {
+        // name: title | description | servings | ingredient | step
+        void onField(String name, Object value);
+    }
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Listener listener;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private int depth;
+    private String topLevelField;
+    // tokens for ingrediensen/steget som leses nå
+    private TokenBuffer item;
+    private boolean broken;
+
+    IncrementalRecipeParser(Listener listener) {
+        this.listener = listener;
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create JSON parser", e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    void feed(String text) {
+        if (broken || text == null || text.isEmpty()) return;
+
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                handle(token);
+            }
+        } catch (IOException e) {
+            broken = true;
+        }
+    }
+
+    private void handle(JsonToken token) throws IOException {
+        if (item != null) {
+            item.copyCurrentEvent(parser);
+        }
+
+        switch (token) {
+            case START_OBJECT, START_ARRAY -> {
+                depth++;
+                // {  "ingredients": [  {  ← dybde 3
+                if (token == JsonToken.START_OBJECT && depth == 3 && item == null && isItemArray(topLevelField)) {
+                    item = new TokenBuffer(parser, null);
+                    item.copyCurrentEvent(parser);
+                }
+            }
+            case END_OBJECT, END_ARRAY -> {
+                if (item != null && depth == 3) {
+                    emitItem();
+                }
+                depth--;
+            }
+            case FIELD_NAME -> {
+                if (depth == 1) topLevelField = parser.currentName();
+            }
+            default -> {
+                if (depth == 1) emitScalar(token);
+            }
+        }
+    }
+
+    private void emitScalar(JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL || topLevelField == null) return;
+
+        switch (topLevelField) {
+            case "title", "description" -> {
+                if (token == JsonToken.VALUE_STRING) listener.onField(topLevelField, parser.getText());
+            }
+            case "servings" -> {
+                if (token == JsonToken.VALUE_NUMBER_INT) listener.onField("servings", parser.getIntValue());
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void emitItem() {
+        TokenBuffer buffer = item;
+        item = null;
+        try {
+            if ("ingredients".equals(topLevelField)) {
+                listener.onField("ingredient", OBJECT_MAPPER.readValue(buffer.asParser(), IngredientDto.class));
+            } else {
+                listener.onField("step", OBJECT_MAPPER.readValue(buffer.asParser(), RecipeStepDto.class));
+            }
+        } catch (IOException e) {
+            // ett rart element hopper vi over; hele oppskriften kommer til slutt uansett
+        }
+    }
+
+    private static boolean isItemArray(String field) {
+        return "ingredients".equals(field) || "steps".equals(field);
+    }
+}
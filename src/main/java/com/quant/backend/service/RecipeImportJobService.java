@@ -0,0 +1,496 @@
+package com.quant.backend.service;
+
+import com.quant.backend.auth.QuantPrincipal;
+import com.quant.backend.dto.ImportJobDto;
+import com.quant.backend.dto.ImportRecipeRequestDto;
+import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.entity.Ids;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynkron AI-import: requesten legger jobben i kø og svarer med en jobb-id med en gang,
+ * så Tomcat-tråden ikke holdes i 5–20 sekunder mens Claude svarer.
+ *
+ * Jobbene kjøres av en begrenset pool (quant.import.jobs.workers) med begrenset kø
+ * (quant.import.jobs.queue-capacity); er køen full svarer vi 503 i stedet for å hope opp
+ * opplastede filer i minnet. Status hentes ved polling eller som SSE, og jobbene ryddes
+ * bort quant.import.jobs.ttl etter at de ble ferdige.
+ */
+@Service
+public class RecipeImportJobService {
+
+    public enum Kind { TEXT, IMAGE, FILE }
+
+    public enum Stage {
+        QUEUED, EXTRACTING, CALLING_MODEL, PARSING, DONE, FAILED;
+
+        boolean finished() {
+            return this == DONE || this == FAILED;
+        }
+    }
+
+    // Endres kun under synchronized (this). SSE-sending skjer utenfor låsen, fra et Snapshot tatt
+    // under den, så en treg klient ikke holder igjen polling, nye abonnenter eller oppryddingen.
+    private static final class Job {
+        final String id;
+        final String ownerUserId;
+        final Kind kind;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+        Stage stage = Stage.QUEUED;
+        LocalDateTime updatedAt = createdAt;
+        RecipeDto recipe;
+        String error;
+        // Økes ved hver overgang, så en klient aldri får en eldre status etter en nyere
+        long version;
+
+        Job(String id, String ownerUserId, Kind kind) {
+            this.id = id;
+            this.ownerUserId = ownerUserId;
+            this.kind = kind;
+        }
+
+        ImportJobDto toDto() {
+            return new ImportJobDto(id, kind.name(), stage.name(), recipe, error, createdAt, updatedAt);
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(version, toDto(), List.copyOf(subscribers), stage.finished());
+        }
+    }
+
+    private record Snapshot(long version, ImportJobDto dto, List<Subscriber> subscribers, boolean finished) {}
+
+    // Én SSE-klient. Låsen her serialiserer sendingen til akkurat denne klienten.
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        long lastVersion = -1;
+        boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        synchronized boolean send(long version, ImportJobDto dto) {
+            if (closed) {
+                return false;
+            }
+            if (version <= lastVersion) {
+                return true; // en nyere status er allerede sendt
+            }
+            try {
+                emitter.send(SseEmitter.event().name("stage").data(dto));
+                lastVersion = version;
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                // klienten har koblet fra; jobben fortsetter og kan polles
+                closed = true;
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+
+        synchronized void complete() {
+            if (!closed) {
+                closed = true;
+                emitter.complete();
+            }
+        }
+    }
+
+    private final RecipeParserService recipeParserService;
+    private final ThreadPoolExecutor executor;
+    private final Duration ttl;
+    private final Duration sseTimeout;
+
+    private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private final Counter submitted;
+    private final Counter rejected;
+    private final Counter completed;
+    private final Counter failed;
+
+    public RecipeImportJobService(RecipeParserService recipeParserService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${quant.import.jobs.workers:4}") int workers,
+                                  @Value("${quant.import.jobs.queue-capacity:16}") int queueCapacity,
+                                  @Value("${quant.import.jobs.ttl:15m}") Duration ttl,
+                                  @Value("${quant.import.jobs.sse-timeout:5m}") Duration sseTimeout) {
+        this.recipeParserService = recipeParserService;
+        this.ttl = ttl;
+        this.sseTimeout = sseTimeout;
+
+        AtomicInteger threadNo = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                workers, workers,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "recipe-import-" + threadNo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        this.submitted = Counter.builder("quant.import.jobs.submitted")
+                .description("Import jobs accepted into the queue")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("quant.import.jobs.rejected")
+                .description("Import jobs rejected because the queue was full")
+                .register(meterRegistry);
+        this.completed = Counter.builder("quant.import.jobs.completed")
+                .description("Import jobs that produced a recipe")
+                .register(meterRegistry);
+        this.failed = Counter.builder("quant.import.jobs.failed")
+                .description("Import jobs that ended without a recipe")
+                .register(meterRegistry);
+        Gauge.builder("quant.import.jobs.queued", executor, e -> e.getQueue().size())
+                .description("Import jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("quant.import.jobs.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Import jobs currently running")
+                .register(meterRegistry);
+    }
+
+    // ------------------------
+    // Innsending (bytes kopieres her: MultipartFile er borte når requesten er ferdig)
+    // ------------------------
+
+    public ImportJobDto submitText(ImportRecipeRequestDto request) {
+        if (request == null || request.getText() == null || request.getText().isBlank()) {
+            throw new IllegalArgumentException("text is required");
+        }
+        String text = request.getText();
+        String sourceUrl = request.getSourceUrl();
+
+        return submit(Kind.TEXT, job -> {
+            advance(job, Stage.CALLING_MODEL);
+            String json = recipeParserService.parseRaw(text);
+
+            advance(job, Stage.PARSING);
+            RecipeDto recipe = recipeParserService.toRecipe(json, sourceUrl, "plain_text");
+            if (recipe != null) {
+                return RecipeService.withDescriptionFallback(recipe, "teksten");
+            }
+
+            // Samme fallback som POST /import-text
+            System.err.println("RecipeImportJobService: AI parsing failed, using stub fallback");
+            return RecipeService.stubFromText(text, sourceUrl);
+        });
+    }
+
+    public ImportJobDto submitImage(MultipartFile image) {
+        byte[] bytes = readUpload(image, "image");
+        String mediaType = image.getContentType();
+
+        return submit(Kind.IMAGE, job -> {
+            advance(job, Stage.CALLING_MODEL);
+            String json = recipeParserService.parseImageRaw(new ByteArrayResource(bytes), mediaType);
+
+            advance(job, Stage.PARSING);
+            RecipeDto recipe = recipeParserService.toRecipe(json, null, "image");
+            return recipe != null ? RecipeService.withDescriptionFallback(recipe, "bildet") : null;
+        });
+    }
+
+    public ImportJobDto submitFile(MultipartFile file) {
+        byte[] bytes = readUpload(file, "file");
+        String filename = file.getOriginalFilename();
+        String contentType = file.getContentType();
+
+        return submit(Kind.FILE, job -> {
+            advance(job, Stage.EXTRACTING);
+            String text = recipeParserService.extractText(bytes, filename, contentType);
+            if (text == null || text.isBlank()) {
+                throw new IllegalArgumentException("Unsupported or empty file");
+            }
+
+            advance(job, Stage.CALLING_MODEL);
+            String json = recipeParserService.parseRaw(text);
+
+            advance(job, Stage.PARSING);
+            RecipeDto recipe = recipeParserService.toRecipe(json, null, "plain_text");
+            return recipe != null ? RecipeService.withDescriptionFallback(recipe, "filen") : null;
+        });
+    }
+
+    // ------------------------
+    // Strømmet tekstimport: felt sendes som SSE mens modellen skriver
+    // ------------------------
+
+    /**
+     * Events: title, description, servings, ingredient, step (etter hvert som de blir komplette),
+     * deretter recipe med hele oppskriften (samme resultat som POST /import-text) eller error.
+     * Kjøres i samme begrensede pool som jobbene.
+     */
+    public SseEmitter streamText(ImportRecipeRequestDto request) {
+        if (request == null || request.getText() == null || request.getText().isBlank()) {
+            throw new IllegalArgumentException("text is required");
+        }
+        String text = request.getText();
+        String sourceUrl = request.getSourceUrl();
+        SseEmitter emitter = new SseEmitter(sseTimeout.toMillis());
+
+        try {
+            executor.execute(() -> runStream(emitter, text, sourceUrl));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Import queue is full, try again shortly");
+        }
+
+        submitted.increment();
+        return emitter;
+    }
+
+    private void runStream(SseEmitter emitter, String text, String sourceUrl) {
+        try {
+            IncrementalRecipeParser incremental = new IncrementalRecipeParser(
+                    (name, value) -> sendOrAbort(emitter, name, value));
+
+            String json = recipeParserService.parseRawStreaming(text, incremental::feed);
+
+            RecipeDto recipe = recipeParserService.toRecipe(json, sourceUrl, "plain_text");
+            if (recipe != null) {
+                recipe = RecipeService.withDescriptionFallback(recipe, "teksten");
+                completed.increment();
+            } else {
+                System.err.println("RecipeImportJobService: AI parsing failed, using stub fallback");
+                recipe = RecipeService.stubFromText(text, sourceUrl);
+                failed.increment();
+            }
+
+            sendOrAbort(emitter, "recipe", recipe);
+            emitter.complete();
+        } catch (ClientGoneException e) {
+            // klienten koblet fra; modellkallet er avbrutt
+            failed.increment();
+        } catch (Exception e) {
+            System.err.println("RecipeImportJobService: streamed import failed - " + e.getMessage());
+            failed.increment();
+            try {
+                emitter.send(SseEmitter.event().name("error").data("Import failed"));
+                emitter.complete();
+            } catch (IOException | IllegalStateException ignored) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private static final class ClientGoneException extends RuntimeException {
+        ClientGoneException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    private static void sendOrAbort(SseEmitter emitter, String name, Object value) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(value));
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            throw new ClientGoneException(e);
+        }
+    }
+
+    // ------------------------
+    // Status
+    // ------------------------
+
+    public ImportJobDto getJob(String jobId) {
+        Job job = findOwnJob(jobId);
+        synchronized (job) {
+            return job.toDto();
+        }
+    }
+
+    // Sender gjeldende status med en gang, deretter hver overgang; lukkes når jobben er ferdig
+    public SseEmitter subscribe(String jobId) {
+        Job job = findOwnJob(jobId);
+        SseEmitter emitter = new SseEmitter(sseTimeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> job.subscribers.remove(subscriber));
+        emitter.onTimeout(() -> job.subscribers.remove(subscriber));
+        emitter.onError(e -> job.subscribers.remove(subscriber));
+
+        // Registreres under låsen, så ingen overgang går tapt mellom statusen og abonnementet
+        Snapshot snapshot;
+        synchronized (job) {
+            snapshot = job.snapshot();
+            if (!snapshot.finished()) {
+                job.subscribers.add(subscriber);
+            }
+        }
+
+        if (!subscriber.send(snapshot.version(), snapshot.dto())) {
+            job.subscribers.remove(subscriber);
+        } else if (snapshot.finished()) {
+            subscriber.complete();
+        }
+        return emitter;
+    }
+
+    // ------------------------
+    // Opprydding
+    // ------------------------
+
+    @Scheduled(fixedDelayString = "${quant.import.jobs.cleanup-interval-ms:60000}")
+    public void removeExpired() {
+        LocalDateTime finishedBefore = LocalDateTime.now().minus(ttl);
+        // Uferdige jobber som henger (f.eks. et kall som aldri svarer) får dobbel TTL
+        LocalDateTime stuckBefore = finishedBefore.minus(ttl);
+
+        List<Subscriber> orphaned = new ArrayList<>();
+        jobs.values().removeIf(job -> {
+            synchronized (job) {
+                boolean expired = job.stage.finished()
+                        ? job.updatedAt.isBefore(finishedBefore)
+                        : job.createdAt.isBefore(stuckBefore);
+                if (expired) {
+                    orphaned.addAll(job.subscribers);
+                    job.subscribers.clear();
+                }
+                return expired;
+            }
+        });
+        orphaned.forEach(Subscriber::complete);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ------------------------
+    // Helpers
+    // ------------------------
+
+    @FunctionalInterface
+    private interface ImportTask {
+        RecipeDto run(Job job) throws Exception;
+    }
+
+    private ImportJobDto submit(Kind kind, ImportTask task) {
+        Job job = new Job(Ids.newId(), currentUserId(), kind);
+        jobs.put(job.id, job);
+
+        try {
+            executor.execute(() -> run(job, task));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Import queue is full, try again shortly");
+        }
+
+        submitted.increment();
+        synchronized (job) {
+            return job.toDto();
+        }
+    }
+
+    private void run(Job job, ImportTask task) {
+        try {
+            RecipeDto recipe = task.run(job);
+            if (recipe == null) {
+                finish(job, Stage.FAILED, null, "Could not parse a recipe from the input");
+            } else {
+                finish(job, Stage.DONE, recipe, null);
+            }
+        } catch (IllegalArgumentException e) {
+            finish(job, Stage.FAILED, null, e.getMessage());
+        } catch (Exception e) {
+            System.err.println("RecipeImportJobService: job " + job.id + " failed - " + e.getMessage());
+            finish(job, Stage.FAILED, null, "Import failed");
+        }
+    }
+
+    private void advance(Job job, Stage stage) {
+        Snapshot snapshot;
+        synchronized (job) {
+            job.stage = stage;
+            job.updatedAt = LocalDateTime.now();
+            job.version++;
+            snapshot = job.snapshot();
+        }
+        broadcast(job, snapshot);
+    }
+
+    private void finish(Job job, Stage stage, RecipeDto recipe, String error) {
+        Snapshot snapshot;
+        synchronized (job) {
+            job.stage = stage;
+            job.recipe = recipe;
+            job.error = error;
+            job.updatedAt = LocalDateTime.now();
+            job.version++;
+            snapshot = job.snapshot();
+            job.subscribers.clear();
+        }
+        broadcast(job, snapshot);
+        (stage == Stage.DONE ? completed : failed).increment();
+    }
+
+    // Utenfor jobbens lås; siste status lukker strømmen
+    private static void broadcast(Job job, Snapshot snapshot) {
+        for (Subscriber subscriber : snapshot.subscribers()) {
+            if (!subscriber.send(snapshot.version(), snapshot.dto())) {
+                job.subscribers.remove(subscriber);
+            } else if (snapshot.finished()) {
+                subscriber.complete();
+            }
+        }
+    }
+
+    private Job findOwnJob(String jobId) {
+        Job job = jobs.get(jobId);
+        // Andres jobber ser ut som ukjente
+        if (job == null || !job.ownerUserId.equals(currentUserId())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Import job not found");
+        }
+        return job;
+    }
+
+    private static byte[] readUpload(MultipartFile upload, String name) {
+        if (upload == null || upload.isEmpty()) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        try {
+            return upload.getBytes();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read " + name);
+        }
+    }
+
+    private static String currentUserId() {
+        var auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof QuantPrincipal qp) {
+            return qp.userId();
+        }
+        throw new IllegalArgumentException("Not authenticated");
+    }
+}
@@ -0,0 +1,167 @@
+package com.quant.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.quant.backend.auth.AdminAccess;
+import com.quant.backend.auth.QuantPrincipal;
+import com.quant.backend.entity.AiParseCacheEntity;
+import com.quant.backend.repository.AiParseCacheJpaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Innholdsadressert cache for AI-parsinger, så samme blogginnlegg/PDF/bilde ikke sendes til Claude
+ * på nytt. Nøkkelen er SHA-256 av (modus, promptversjon, normalisert input); endres prompten,
+ * bumpes versjonen i RecipeParserService og gamle svar blir aldri truffet igjen.
+ *
+ * To nivåer: begrenset LRU i minnet (Caffeine) foran tabellen ai_parse_cache, som overlever restart
+ * og deles mellom instanser. Bare svar som er gyldig JSON lagres.
+ */
+@Component
+public class RecipeParseCache {
+
+    private record CachedParse(String importMode, String response) {}
+
+    private final AiParseCacheJpaRepository repository;
+    private final AdminAccess adminAccess;
+    private final boolean enabled;
+
+    private final Cache<String, CachedParse> memory;
+
+    private final Counter memoryHits;
+    private final Counter databaseHits;
+    private final Counter misses;
+
+    public RecipeParseCache(AiParseCacheJpaRepository repository,
+                            AdminAccess adminAccess,
+                            MeterRegistry meterRegistry,
+                            @Value("${quant.import.parse-cache.enabled:true}") boolean enabled,
+                            @Value("${quant.import.parse-cache.max-entries:1000}") long maxEntries) {
+        this.repository = repository;
+        this.adminAccess = adminAccess;
+        this.enabled = enabled;
+
+        this.memory = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "aiParses");
+
+        // Treffrate på tvers av begge nivåene: hit{tier=memory|database} / (hit + miss)
+        this.memoryHits = Counter.builder("quant.import.parse-cache.lookups")
+                .tag("result", "hit").tag("tier", "memory")
+                .register(meterRegistry);
+        this.databaseHits = Counter.builder("quant.import.parse-cache.lookups")
+                .tag("result", "hit").tag("tier", "database")
+                .register(meterRegistry);
+        this.misses = Counter.builder("quant.import.parse-cache.lookups")
+                .tag("result", "miss").tag("tier", "none")
+                .register(meterRegistry);
+    }
+
+    public static String key(String importMode, String promptVersion, byte[] content) {
+        MessageDigest digest = newDigest(importMode, promptVersion);
+        digest.update(content);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Samme nøkkel som byte[]-varianten, men uten å lese hele innholdet inn i minnet (store bilder)
+    public static String key(String importMode, String promptVersion, InputStream content) throws IOException {
+        MessageDigest digest = newDigest(importMode, promptVersion);
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = content.read(buffer)) != -1) {
+            digest.update(buffer, 0, n);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest(String importMode, String promptVersion) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((importMode + "\n" + promptVersion + "\n").getBytes(StandardCharsets.UTF_8));
+            return digest;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public Optional<String> get(String key) {
+        if (!enabled) return Optional.empty();
+
+        CachedParse cached = memory.getIfPresent(key);
+        if (cached != null) {
+            memoryHits.increment();
+            return Optional.of(cached.response());
+        }
+
+        try {
+            Optional<AiParseCacheEntity> stored = repository.findById(key);
+            if (stored.isPresent()) {
+                AiParseCacheEntity entity = stored.get();
+                memory.put(key, new CachedParse(entity.getImportMode(), entity.getResponse()));
+                databaseHits.increment();
+                return Optional.of(entity.getResponse());
+            }
+        } catch (DataAccessException e) {
+            // Cachen skal aldri stoppe en import; da går vi bare til Claude
+            System.err.println("RecipeParseCache: lookup failed - " + e.getMessage());
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(String key, String importMode, String promptVersion, String response) {
+        if (!enabled) return;
+
+        memory.put(key, new CachedParse(importMode, response));
+        try {
+            repository.save(new AiParseCacheEntity(key, importMode, promptVersion, response, LocalDateTime.now()));
+        } catch (DataIntegrityViolationException e) {
+            // samme input parset samtidig et annet sted; raden finnes allerede
+        } catch (DataAccessException e) {
+            System.err.println("RecipeParseCache: store failed - " + e.getMessage());
+        }
+    }
+
+    // Admin: tøm alt eller én modus (TEXT | IMAGE), f.eks. etter en promptendring uten versjonsbump
+    public int invalidate(String importMode) {
+        ensureAdmin();
+
+        if (importMode == null || importMode.isBlank()) {
+            memory.invalidateAll();
+            return repository.deleteAllEntries();
+        }
+
+        String mode = importMode.trim().toUpperCase(Locale.ROOT);
+        memory.asMap().values().removeIf(cached -> cached.importMode().equals(mode));
+        return repository.deleteByImportMode(mode);
+    }
+
+    private void ensureAdmin() {
+        var auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth != null && auth.getPrincipal() instanceof QuantPrincipal qp ? qp.email() : null;
+        if (!adminAccess.isAdminEmail(email)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin only");
+        }
+    }
+}
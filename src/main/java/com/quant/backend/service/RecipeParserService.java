@@ -8,20 +8,33 @@ import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 public class RecipeParserService {
 
+    // Del av RecipeParseCache-nøkkelen: bump når en prompt endres, så gamle svar ikke brukes
+    static final String TEXT_PROMPT_VERSION = "text-v1";
+    static final String IMAGE_PROMPT_VERSION = "image-v1";
+
     private final ClaudeClient claudeClient;
+    private final RecipeParseCache parseCache;
+    private final ImagePreprocessor imagePreprocessor;
     private final ObjectMapper objectMapper;
 
-    public RecipeParserService(ClaudeClient claudeClient) {
+    public RecipeParserService(ClaudeClient claudeClient, RecipeParseCache parseCache,
+                               ImagePreprocessor imagePreprocessor) {
         this.claudeClient = claudeClient;
+        this.parseCache = parseCache;
+        this.imagePreprocessor = imagePreprocessor;
         this.objectMapper = new ObjectMapper();
     }
 
@@ -37,158 +50,14 @@ public class RecipeParserService {
 
         logBlock("RECIPE_IMPORT INPUT", normalizedRecipeText);
 
-
-        String prompt = """
-    You are a strict JSON-only recipe converter.
-
-    Your ONLY job is to read free-form recipe text and return a single JSON object that matches EXACTLY the structure described below.
-
-    IMPORTANT OUTPUT RULES:
-    - Output MUST be valid JSON.
-    - Output MUST NOT be wrapped in markdown.
-    - Do NOT include comments or explanations.
-    - Do NOT include any extra fields not defined in the schema.
-    - Top-level keys use camelCase (id, title, description, servings, ingredients, steps, metadata).
-    - Metadata keys use snake_case (source_url, image_url, calculator_id, import_method).
-    - If some information is missing, set the corresponding field to null or an empty list where appropriate.
-    - If you are unsure, do NOT guess. Keep unknown values as null and preserve only what is supported by the input text.    
-    - Do NOT generate an id. Always set "id": null.
-    - LANGUAGE RULE: The entire output must be written in the same language as the input text.
-      - If the input text is Norwegian, generate all fields (including generated descriptions) in Norwegian (Bokmål).
-      - Do NOT translate content that already exists; preserve original wording when extracting.
-      - Only generated fallback descriptions should follow the detected input language.
-    - The input may come from copied text, PDF extraction, DOCX extraction, or OCR-like text.
-    - Preserve recipe meaning even if spacing or line breaks are imperfect.
-    - If an ingredient is split across nearby lines, combine it into one logical ingredient when the meaning is clear.
-    - Ignore obvious non-recipe noise such as page numbers, isolated headers/footers, repeated file artifacts, and standalone decorative text.
-    - Do NOT treat section headings as ingredients or steps.
-
-    TARGET JSON STRUCTURE (this is an example, not literal output):
-
-    {
-      "id": null,
-      "title": "Recipe title",
-      "description": "Short description",
-      "servings": 4,
-      "ingredients": [
-        {
-          "amount": 400.0,
-          "unit": "g",
-          "item": "spaghetti",
-          "notes": "finhakket",
-          "section": null
-        }
-      ],
-      "steps": [
-        {
-          "step": 1,
-          "instruction": "First step.",
-          "notes": null
+        String cacheKey = RecipeParseCache.key("TEXT", TEXT_PROMPT_VERSION,
+                normalizedRecipeText.getBytes(StandardCharsets.UTF_8));
+        Optional<String> cached = parseCache.get(cacheKey);
+        if (cached.isPresent()) {
+            return cached.get();
         }
-      ],
-      "metadata": {
-        "source_url": null,
-        "author": null,
-        "language": null,
-        "categories": [],
-        "image_url": null,
-        "calculator_id": null,
-        "import_method": "plain_text"
-      }
-    }
-
-    DETAILED FIELD RULES:
-
-    - id:
-      - MUST always be present
-      - MUST always be null (the backend will generate IDs)
-
-    - title:
-      - Short recipe title
-      - Required. If not obvious, invent a reasonable title based on the recipe text.
-
-    - description:
-      - If an explicit description, introduction, or summary paragraph exists in the input text, extract it as-is.
-      - If no description is present in the input, generate a concise 1–2 sentence description based on:
-        - The recipe title
-        - The general cooking method implied by the steps (e.g., baked, fried, simmered, roasted, grilled)
-      - The generated description must NOT invent ingredients that are not in the input.
-      - Keep it concise, neutral, and factual.
-      - Do NOT return null or empty string. Always provide a description.
-
-    - servings:
-      - Integer or null.
-      - Parse from phrases like "4 porsjoner", "serves 2", "til 6 personer".
-      - If you are unsure, use null.
-
-    - ingredients (array):
-      - Try to extract one ingredient per logical line.
-      - If amount, unit, and ingredient name are split across adjacent lines because of formatting, combine them when the meaning is clear.
-      - Ignore isolated formatting fragments that are clearly not ingredients.
-      - Each ingredient object MUST have:
-        - amount: number or null (e.g. 400, 1.5)
-        - unit: string or null (normalized where possible, e.g. "g", "kg", "ml", "dl", "l", "ts", "ss", "cup")
-        - item: ingredient name without amount or unit (e.g. "spaghetti", "hvetemel", "olivenolje")
-        - notes: extra info like "finhakket", "romtemperert", or null
-        - section: string or null (e.g. "Saus", "Salat", "Topping"). Use null if no grouping.
-      - If amount is missing or unclear, set amount = null.
-      - If unit is missing or unnecessary (e.g. "2 egg"), set unit = null.
-
-      - OPTIONAL GROUPING (sections):
-        - Many recipes group ingredients under headings like "Saus", "Salat", "Topping", "Marinade".
-        - If the input has such headings, set "section" on each ingredient to the heading it belongs to.
-        - For ingredients not under any heading, set "section": null.
-        - Headings are usually a standalone line without amount/unit (e.g. "Saus").
-        - Do NOT create new ingredients for headings. Headings should not appear as ingredients.
-        - If there are NO clear headings, you MAY still set "section" when the text clearly labels a group in-line,
-          e.g. "Til sausen:", "Saus:", "Dressing:", "Til marinaden:".
-        - In that case, set section to that label (normalized, e.g. "Saus", "Dressing", "Marinade") for the following relevant ingredients.
-        - If you are not confident, keep section = null. Do NOT invent sections.
-
-    - steps (array):
-      - Merge broken lines that clearly belong to the same instruction.
-      - Break the method/instructions into logical steps.
-      - Keep the original order.
-      - A step MUST describe a concrete cooking action (an instruction the user should perform).
-      - DO NOT include as steps:
-        - references/links to other recipes ("find the recipe here", "see recipe", URLs)
-        - shopping advice ("you can buy", "available in stores")
-        - personal opinions or general commentary ("I like", "I prefer", "it varies")
-        - long background/serving traditions (move to description or notes instead)
-      - If a paragraph mixes action + commentary:
-        - Keep ONLY the actionable instruction in "instruction"
-        - Move the rest to "notes" (or drop it if not useful)
-      - Never output URLs anywhere in steps.
-      - Each step object MUST have:
-        - step: 1-based integer (1, 2, 3, ...)
-        - instruction: the main step text as a single string
-        - notes: null or small extra note if needed.
-
-    - metadata:
-      - source_url:
-        - Set to null (the backend may fill this later).
-      - author:
-        - Set to null.
-      - language:
-        - If obvious (e.g. Norwegian vs English), you MAY set "no" or "en".
-        - Otherwise, set to null.
-      - categories:
-        - Array of strings like ["pasta", "middag", "vegetar"].
-        - If nothing obvious, use [].
-      - image_url:
-        - Set to null.
-      - calculator_id:
-        - Set to null.
-      - import_method:
-        - Always set to "plain_text".
-
-    NOW CONVERT THE FOLLOWING RECIPE TEXT INTO EXACTLY ONE JSON OBJECT WITH THIS STRUCTURE.
-
-    REMEMBER: OUTPUT ONLY JSON, NO MARKDOWN, NO EXPLANATIONS.
-
-    RECIPE TEXT:
-    """ + "\n\n" + normalizedRecipeText;
 
+        String prompt = textPrompt(normalizedRecipeText);
 
         // TODO remove
         String response = claudeClient.complete(prompt);
@@ -197,29 +66,65 @@ public class RecipeParserService {
         System.out.println(response);
         System.out.println("=== RECIPE_IMPORT RAW AI RESPONSE END ===");
 
+        cacheIfValid(cacheKey, "TEXT", TEXT_PROMPT_VERSION, response);
         return response;
 
         //return claudeClient.complete(prompt);
     }
 
-    public RecipeDto parseToRecipe(String recipeText, String sourceUrl) {
+    /**
+     * Som parseRaw, men tekstbitene sendes til onText mens modellen skriver (se IncrementalRecipeParser).
+     * Ved cachetreff kommer hele svaret som én bit.
+     */
+    public String parseRawStreaming(String recipeText, Consumer<String> onText) {
         if (recipeText == null || recipeText.trim().isEmpty()) {
             return null;
         }
 
-        try {
-            String json = parseRaw(recipeText);
-            if (json == null || json.trim().isEmpty()) {
-                return null;
-            }
+        String normalizedRecipeText = normalizeRecipeText(recipeText);
+        if (normalizedRecipeText == null || normalizedRecipeText.isEmpty()) {
+            return null;
+        }
 
-            RecipeDto dto = objectMapper.readValue(json, RecipeDto.class);
+        String cacheKey = RecipeParseCache.key("TEXT", TEXT_PROMPT_VERSION,
+                normalizedRecipeText.getBytes(StandardCharsets.UTF_8));
+        Optional<String> cached = parseCache.get(cacheKey);
+        if (cached.isPresent()) {
+            onText.accept(cached.get());
+            return cached.get();
+        }
+
+        String response = claudeClient.completeStreaming(textPrompt(normalizedRecipeText), onText);
+        cacheIfValid(cacheKey, "TEXT", TEXT_PROMPT_VERSION, response);
+        return response;
+    }
+
+    public RecipeDto parseToRecipe(String recipeText, String sourceUrl) {
+        if (recipeText == null || recipeText.trim().isEmpty()) {
+            return null;
+        }
+
+        RecipeDto dto = toRecipe(parseRaw(recipeText), sourceUrl, "plain_text");
 
-            // TODO remove
+        // TODO remove
+        if (dto != null) {
             System.out.println("=== RECIPE_IMPORT PARSED DTO TITLE ===");
             System.out.println(dto.getTitle());
             System.out.println("=== RECIPE_IMPORT PARSED DTO DESCRIPTION ===");
             System.out.println(dto.getDescription());
+        }
+
+        return dto;
+    }
+
+    // Rått AI-svar → RecipeDto; null hvis svaret mangler eller ikke er gyldig JSON
+    public RecipeDto toRecipe(String json, String sourceUrl, String importMethod) {
+        if (json == null || json.trim().isEmpty()) {
+            return null;
+        }
+
+        try {
+            RecipeDto dto = objectMapper.readValue(json, RecipeDto.class);
 
             if (dto.getMetadata() == null) {
                 dto.setMetadata(RecipeMetadataDto.builder().build());
@@ -233,7 +138,7 @@ public class RecipeParserService {
                     .categories(metadata.getCategories() != null ? metadata.getCategories() : new java.util.ArrayList<>())
                     .imageUrl(metadata.getImageUrl())
                     .calculatorId(metadata.getCalculatorId())
-                    .importMethod("plain_text")
+                    .importMethod(importMethod)
                     .build();
 
             dto.setMetadata(updatedMetadata);
@@ -251,12 +156,32 @@ public class RecipeParserService {
             return null;
         }
 
+        // MultipartFile er selv en InputStreamSource: bildet strømmes fra uploaden uten getBytes()
+        return parseImageRaw(imageFile, imageFile.getContentType());
+    }
+
+    // Import-jobbene sender en ByteArrayResource: MultipartFile er borte når requesten er ferdig.
+    // image leses flere ganger (cache-nøkkel, formatsjekk, selve kallet) og må tåle det.
+    public String parseImageRaw(InputStreamSource image, String mediaType) {
+        if (image == null) {
+            return null;
+        }
+
         try {
-            String mediaType = imageFile.getContentType();
             if (mediaType == null || mediaType.isBlank()) {
                 mediaType = "image/jpeg";
             }
 
+            // Samme bildefil gir samme svar uansett hvem som laster den opp
+            String cacheKey;
+            try (InputStream in = image.getInputStream()) {
+                cacheKey = RecipeParseCache.key("IMAGE", IMAGE_PROMPT_VERSION, in);
+            }
+            Optional<String> cached = parseCache.get(cacheKey);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+
             String prompt = """
     You are a strict JSON-only recipe converter.
 
@@ -376,16 +301,20 @@ public class RecipeParserService {
     OUTPUT ONLY JSON.
     """;
 
+            // Cache-nøkkelen over er på originalen; bare det som sendes til Claude skaleres ned
+            ImagePreprocessor.PreparedImage prepared = imagePreprocessor.prepare(image, mediaType);
+
             String response = claudeClient.completeWithImage(
                     prompt,
-                    imageFile.getBytes(),
-                    mediaType
+                    prepared.image(),
+                    prepared.mediaType()
             );
 
             System.out.println("=== RECIPE_IMAGE_IMPORT RAW AI RESPONSE START ===");
             System.out.println(response);
             System.out.println("=== RECIPE_IMAGE_IMPORT RAW AI RESPONSE END ===");
 
+            cacheIfValid(cacheKey, "IMAGE", IMAGE_PROMPT_VERSION, response);
             return response;
         } catch (Exception e) {
             System.err.println("RecipeParserService: Failed to parse image raw - " + e.getMessage());
@@ -399,55 +328,37 @@ public class RecipeParserService {
             return null;
         }
 
-        try {
-            String json = parseImageRaw(imageFile);
-            if (json == null || json.trim().isEmpty()) {
-                return null;
-            }
-
-            RecipeDto dto = objectMapper.readValue(json, RecipeDto.class);
-
-            if (dto.getMetadata() == null) {
-                dto.setMetadata(RecipeMetadataDto.builder().build());
-            }
-
-            RecipeMetadataDto metadata = dto.getMetadata();
-            RecipeMetadataDto updatedMetadata = RecipeMetadataDto.builder()
-                    .sourceUrl(null)
-                    .author(metadata.getAuthor())
-                    .language(metadata.getLanguage())
-                    .categories(metadata.getCategories() != null ? metadata.getCategories() : new java.util.ArrayList<>())
-                    .imageUrl(metadata.getImageUrl())
-                    .calculatorId(metadata.getCalculatorId())
-                    .importMethod("image")
-                    .build();
+        return toRecipe(parseImageRaw(imageFile), null, "image");
+    }
 
-            dto.setMetadata(updatedMetadata);
+    public String extractTextFromFile(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
 
-            return dto;
+        try {
+            return extractText(file.getBytes(), file.getOriginalFilename(), file.getContentType());
         } catch (Exception e) {
-            System.err.println("RecipeParserService: Failed to parse image to recipe - " + e.getMessage());
+            System.err.println("RecipeParserService: Failed to read file - " + e.getMessage());
             e.printStackTrace();
             return null;
         }
     }
 
-    public String extractTextFromFile(MultipartFile file) {
-        if (file == null || file.isEmpty()) {
+    public String extractText(byte[] bytes, String originalFilename, String contentType) {
+        if (bytes == null || bytes.length == 0) {
             return null;
         }
 
         try {
-            String originalFilename = file.getOriginalFilename();
             String lowerName = originalFilename != null ? originalFilename.toLowerCase() : "";
-            String contentType = file.getContentType();
 
             if (lowerName.endsWith(".txt") || "text/plain".equalsIgnoreCase(contentType)) {
-                return new String(file.getBytes(), StandardCharsets.UTF_8);
+                return new String(bytes, StandardCharsets.UTF_8);
             }
 
             if (lowerName.endsWith(".pdf") || "application/pdf".equalsIgnoreCase(contentType)) {
-                try (var pdf = Loader.loadPDF(file.getBytes())) {
+                try (var pdf = Loader.loadPDF(bytes)) {
                     PDFTextStripper stripper = new PDFTextStripper();
                     return stripper.getText(pdf);
                 }
@@ -456,7 +367,7 @@ public class RecipeParserService {
             if (lowerName.endsWith(".docx")
                     || "application/vnd.openxmlformats-officedocument.wordprocessingml.document"
                     .equalsIgnoreCase(contentType)) {
-                try (ByteArrayInputStream inputStream = new ByteArrayInputStream(file.getBytes());
+                try (ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
                      XWPFDocument document = new XWPFDocument(inputStream);
                      XWPFWordExtractor extractor = new XWPFWordExtractor(document)) {
                     return extractor.getText();
@@ -497,6 +408,173 @@ public class RecipeParserService {
         }
     }
 
+    private String textPrompt(String normalizedRecipeText) {
+        return """
+    You are a strict JSON-only recipe converter.
+
+    Your ONLY job is to read free-form recipe text and return a single JSON object that matches EXACTLY the structure described below.
+
+    IMPORTANT OUTPUT RULES:
+    - Output MUST be valid JSON.
+    - Output MUST NOT be wrapped in markdown.
+    - Do NOT include comments or explanations.
+    - Do NOT include any extra fields not defined in the schema.
+    - Top-level keys use camelCase (id, title, description, servings, ingredients, steps, metadata).
+    - Metadata keys use snake_case (source_url, image_url, calculator_id, import_method).
+    - If some information is missing, set the corresponding field to null or an empty list where appropriate.
+    - If you are unsure, do NOT guess. Keep unknown values as null and preserve only what is supported by the input text.    
+    - Do NOT generate an id. Always set "id": null.
+    - LANGUAGE RULE: The entire output must be written in the same language as the input text.
+      - If the input text is Norwegian, generate all fields (including generated descriptions) in Norwegian (Bokmål).
+      - Do NOT translate content that already exists; preserve original wording when extracting.
+      - Only generated fallback descriptions should follow the detected input language.
+    - The input may come from copied text, PDF extraction, DOCX extraction, or OCR-like text.
+    - Preserve recipe meaning even if spacing or line breaks are imperfect.
+    - If an ingredient is split across nearby lines, combine it into one logical ingredient when the meaning is clear.
+    - Ignore obvious non-recipe noise such as page numbers, isolated headers/footers, repeated file artifacts, and standalone decorative text.
+    - Do NOT treat section headings as ingredients or steps.
+
+    TARGET JSON STRUCTURE (this is an example, not literal output):
+
+    {
+      "id": null,
+      "title": "Recipe title",
+      "description": "Short description",
+      "servings": 4,
+      "ingredients": [
+        {
+          "amount": 400.0,
+          "unit": "g",
+          "item": "spaghetti",
+          "notes": "finhakket",
+          "section": null
+        }
+      ],
+      "steps": [
+        {
+          "step": 1,
+          "instruction": "First step.",
+          "notes": null
+        }
+      ],
+      "metadata": {
+        "source_url": null,
+        "author": null,
+        "language": null,
+        "categories": [],
+        "image_url": null,
+        "calculator_id": null,
+        "import_method": "plain_text"
+      }
+    }
+
+    DETAILED FIELD RULES:
+
+    - id:
+      - MUST always be present
+      - MUST always be null (the backend will generate IDs)
+
+    - title:
+      - Short recipe title
+      - Required. If not obvious, invent a reasonable title based on the recipe text.
+
+    - description:
+      - If an explicit description, introduction, or summary paragraph exists in the input text, extract it as-is.
+      - If no description is present in the input, generate a concise 1–2 sentence description based on:
+        - The recipe title
+        - The general cooking method implied by the steps (e.g., baked, fried, simmered, roasted, grilled)
+      - The generated description must NOT invent ingredients that are not in the input.
+      - Keep it concise, neutral, and factual.
+      - Do NOT return null or empty string. Always provide a description.
+
+    - servings:
+      - Integer or null.
+      - Parse from phrases like "4 porsjoner", "serves 2", "til 6 personer".
+      - If you are unsure, use null.
+
+    - ingredients (array):
+      - Try to extract one ingredient per logical line.
+      - If amount, unit, and ingredient name are split across adjacent lines because of formatting, combine them when the meaning is clear.
+      - Ignore isolated formatting fragments that are clearly not ingredients.
+      - Each ingredient object MUST have:
+        - amount: number or null (e.g. 400, 1.5)
+        - unit: string or null (normalized where possible, e.g. "g", "kg", "ml", "dl", "l", "ts", "ss", "cup")
+        - item: ingredient name without amount or unit (e.g. "spaghetti", "hvetemel", "olivenolje")
+        - notes: extra info like "finhakket", "romtemperert", or null
+        - section: string or null (e.g. "Saus", "Salat", "Topping"). Use null if no grouping.
+      - If amount is missing or unclear, set amount = null.
+      - If unit is missing or unnecessary (e.g. "2 egg"), set unit = null.
+
+      - OPTIONAL GROUPING (sections):
+        - Many recipes group ingredients under headings like "Saus", "Salat", "Topping", "Marinade".
+        - If the input has such headings, set "section" on each ingredient to the heading it belongs to.
+        - For ingredients not under any heading, set "section": null.
+        - Headings are usually a standalone line without amount/unit (e.g. "Saus").
+        - Do NOT create new ingredients for headings. Headings should not appear as ingredients.
+        - If there are NO clear headings, you MAY still set "section" when the text clearly labels a group in-line,
+          e.g. "Til sausen:", "Saus:", "Dressing:", "Til marinaden:".
+        - In that case, set section to that label (normalized, e.g. "Saus", "Dressing", "Marinade") for the following relevant ingredients.
+        - If you are not confident, keep section = null. Do NOT invent sections.
+
+    - steps (array):
+      - Merge broken lines that clearly belong to the same instruction.
+      - Break the method/instructions into logical steps.
+      - Keep the original order.
+      - A step MUST describe a concrete cooking action (an instruction the user should perform).
+      - DO NOT include as steps:
+        - references/links to other recipes ("find the recipe here", "see recipe", URLs)
+        - shopping advice ("you can buy", "available in stores")
+        - personal opinions or general commentary ("I like", "I prefer", "it varies")
+        - long background/serving traditions (move to description or notes instead)
+      - If a paragraph mixes action + commentary:
+        - Keep ONLY the actionable instruction in "instruction"
+        - Move the rest to "notes" (or drop it if not useful)
+      - Never output URLs anywhere in steps.
+      - Each step object MUST have:
+        - step: 1-based integer (1, 2, 3, ...)
+        - instruction: the main step text as a single string
+        - notes: null or small extra note if needed.
+
+    - metadata:
+      - source_url:
+        - Set to null (the backend may fill this later).
+      - author:
+        - Set to null.
+      - language:
+        - If obvious (e.g. Norwegian vs English), you MAY set "no" or "en".
+        - Otherwise, set to null.
+      - categories:
+        - Array of strings like ["pasta", "middag", "vegetar"].
+        - If nothing obvious, use [].
+      - image_url:
+        - Set to null.
+      - calculator_id:
+        - Set to null.
+      - import_method:
+        - Always set to "plain_text".
+
+    NOW CONVERT THE FOLLOWING RECIPE TEXT INTO EXACTLY ONE JSON OBJECT WITH THIS STRUCTURE.
+
+    REMEMBER: OUTPUT ONLY JSON, NO MARKDOWN, NO EXPLANATIONS.
+
+    RECIPE TEXT:
+    """ + "\n\n" + normalizedRecipeText;
+    }
+
+    // Feilsvar og halve svar skal ikke bli sittende i cachen
+    private void cacheIfValid(String cacheKey, String importMode, String promptVersion, String response) {
+        if (response == null || response.isBlank()) {
+            return;
+        }
+        try {
+            if (objectMapper.readTree(response).isObject()) {
+                parseCache.put(cacheKey, importMode, promptVersion, response);
+            }
+        } catch (Exception e) {
+            // ikke JSON; toRecipe melder feilen
+        }
+    }
+
     private String normalizeRecipeText(String input) {
         if (input == null) {
             return null;
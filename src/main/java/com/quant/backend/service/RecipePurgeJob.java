@@ -0,0 +1,46 @@
+package com.quant.backend.service;
+
+import com.quant.backend.repository.RecipeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Fjerner myk-slettede oppskrifter (quant.recipes.delete-mode=SOFT) i chunks,
+ * én transaksjon per chunk, så låser og WAL holdes små. Gjør ingenting i HARD-modus.
+ */
+@Component
+public class RecipePurgeJob {
+
+    private final RecipeRepository recipeRepository;
+    private final Duration minAge;
+    private final int chunkSize;
+
+    public RecipePurgeJob(RecipeRepository recipeRepository,
+                          @Value("${quant.recipes.purge.min-age:1h}") Duration minAge,
+                          @Value("${quant.recipes.purge.chunk-size:500}") int chunkSize) {
+        this.recipeRepository = recipeRepository;
+        this.minAge = minAge;
+        this.chunkSize = chunkSize;
+    }
+
+    // Hver natt kl 04:00 (etter tombstone-cleanup)
+    @Scheduled(cron = "${quant.recipes.purge.cron:0 0 4 * * *}")
+    public void purgeDeletedRecipes() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(minAge);
+        long total = 0;
+        int purged;
+
+        do {
+            purged = recipeRepository.purgeSoftDeleted(cutoff, chunkSize);
+            total += purged;
+        } while (purged == chunkSize);
+
+        if (total > 0) {
+            System.err.println("RecipePurgeJob: purged " + total + " soft-deleted recipes");
+        }
+    }
+}
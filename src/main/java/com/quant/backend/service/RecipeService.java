@@ -4,34 +4,98 @@ import com.quant.backend.auth.AdminAccess;
 import com.quant.backend.auth.QuantPrincipal;
 import com.quant.backend.auth.UserEntity;
 import com.quant.backend.auth.UserJpaRepository;
+import com.quant.backend.dto.BulkDeleteResultDto;
+import com.quant.backend.dto.BulkImportItemDto;
+import com.quant.backend.dto.BulkImportResultDto;
+import com.quant.backend.dto.CookWithMatchDto;
+import com.quant.backend.dto.CursorPageDto;
+import com.quant.backend.dto.RecipeChangesDto;
 import com.quant.backend.dto.ImportRecipeRequestDto;
 import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.dto.RecipeFacetsDto;
 import com.quant.backend.dto.RecipeMetadataDto;
+import com.quant.backend.dto.RecipeSummaryDto;
+import com.quant.backend.dto.RecipeTombstoneDto;
+import com.quant.backend.entity.Ids;
 import com.quant.backend.entity.RecipeShareEntity;
+import com.quant.backend.repository.RecipeAdminFilter;
+import com.quant.backend.repository.RecipeChangesCursor;
+import com.quant.backend.repository.RecipeCursor;
+import com.quant.backend.repository.RecipeListVersion;
 import com.quant.backend.repository.RecipeRepository;
+import com.quant.backend.repository.RecipeSaveResult;
+import com.quant.backend.repository.RecipeVersion;
 import com.quant.backend.repository.RecipeShareJpaRepository;
+import com.quant.backend.search.IngredientIndex;
+import com.quant.backend.search.RecipeSearchIndex;
 import com.quant.backend.service.RecipeParserService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
-
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class RecipeService {
 
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 200;
+    static final int DEFAULT_SEARCH_LIMIT = 20;
+    static final int MAX_BULK_DELETE = 1000;
+    // Fasetter med søk teller blant så mange treff (holder IN-listen under Postgres' parametergrense)
+    static final int MAX_FACET_SEARCH_HITS = 10_000;
+
     private final RecipeRepository recipeRepository;
     private final RecipeParserService recipeParserService;
     private final AdminAccess adminAccess;
     private final UserJpaRepository userRepo;
     private final RecipeShareJpaRepository recipeShareRepo;
+    private final RecipeViewBuffer recipeViewBuffer;
+    private final RecipeSearchIndex recipeSearchIndex;
+    private final IngredientIndex ingredientIndex;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${quant.recipes.tombstone-retention-days:30}")
+    private int tombstoneRetentionDays;
+
+    @Value("${quant.recipes.bulk.chunk-size:200}")
+    private int bulkChunkSize;
+
+    @Value("${quant.recipes.bulk.max-items:10000}")
+    private int bulkMaxItems;
 
     @Value("${quant.allow-admin-mutations:false}")
     private boolean allowAdminMutations; // (ikke brukt når admin er read-only)
@@ -40,28 +104,314 @@ public class RecipeService {
                          RecipeParserService recipeParserService,
                          AdminAccess adminAccess,
                          UserJpaRepository userRepo,
-                         RecipeShareJpaRepository recipeShareRepo) {
+                         RecipeShareJpaRepository recipeShareRepo,
+                         RecipeViewBuffer recipeViewBuffer,
+                         RecipeSearchIndex recipeSearchIndex,
+                         IngredientIndex ingredientIndex,
+                         ObjectMapper objectMapper,
+                         Validator validator) {
         this.recipeRepository = recipeRepository;
         this.recipeParserService = recipeParserService;
         this.adminAccess = adminAccess;
         this.userRepo = userRepo;
         this.recipeShareRepo = recipeShareRepo;
+        this.recipeViewBuffer = recipeViewBuffer;
+        this.recipeSearchIndex = recipeSearchIndex;
+        this.ingredientIndex = ingredientIndex;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
     }
 
     // ------------------------
     // READ (admin kan lese alt)
+    // readOnly = true → går til lese-replikaen når den er slått på
     // ------------------------
 
-    public List<RecipeDto> getAllRecipes() {
-        if (isAdmin()) return recipeRepository.findAllAdmin();
-        return recipeRepository.findAllForUser(currentUserId());
+    // Admin ser hele tabellen: skrives side for side (nyeste først) i stedet for å bygges i minnet
+    public StreamingResponseBody getAllRecipes() {
+        if (isAdmin()) {
+            return writeJsonArray(write -> forEachAdminPage(
+                    cursor -> recipeRepository.findPageAdmin(cursor, MAX_PAGE_SIZE), write));
+        }
+        List<RecipeDto> recipes = recipeRepository.findAllForUser(currentUserId());
+        return writeJsonArray(recipes::forEach);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<RecipeDto> getRecipePage(String cursor, Integer limit) {
+        RecipeCursor decoded = RecipeCursor.decode(cursor);
+        int pageSize = clampPageSize(limit);
+
+        if (isAdmin()) return recipeRepository.findPageAdmin(decoded, pageSize);
+        return recipeRepository.findPageForUser(currentUserId(), decoded, pageSize);
     }
 
+    public StreamingResponseBody getRecipeSummaries() {
+        if (isAdmin()) {
+            return writeJsonArray(write -> forEachAdminPage(
+                    cursor -> recipeRepository.findSummaryPageAdmin(cursor, MAX_PAGE_SIZE), write));
+        }
+        List<RecipeSummaryDto> summaries = recipeRepository.findSummariesForUser(currentUserId());
+        return writeJsonArray(summaries::forEach);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<RecipeSummaryDto> getRecipeSummaryPage(String cursor, Integer limit) {
+        RecipeCursor decoded = RecipeCursor.decode(cursor);
+        int pageSize = clampPageSize(limit);
+
+        if (isAdmin()) return recipeRepository.findSummaryPageAdmin(decoded, pageSize);
+        return recipeRepository.findSummaryPageForUser(currentUserId(), decoded, pageSize);
+    }
+
+    private static <T> void forEachAdminPage(Function<RecipeCursor, CursorPageDto<T>> fetch, Consumer<? super T> consumer) {
+        RecipeCursor cursor = null;
+        do {
+            CursorPageDto<T> page = fetch.apply(cursor);
+            page.getItems().forEach(consumer);
+            cursor = RecipeCursor.decode(page.getNextCursor());
+        } while (cursor != null);
+    }
+
+    // Én JSON-liste skrevet element for element; kjøres på async-tråden som eksporten
+    private StreamingResponseBody writeJsonArray(Consumer<Consumer<Object>> source) {
+        return out -> {
+            ObjectWriter writer = objectMapper.writer()
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                gen.writeStartArray();
+                try {
+                    source.accept(item -> {
+                        try {
+                            writer.writeValue(gen, item);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                gen.writeEndArray();
+            }
+        };
+    }
+
+    // NDJSON-eksport: én oppskrift per linje, skrevet mens den leses fra databasen.
+    // Brukeren slås opp her (request-tråden); selve skrivingen skjer på en async-tråd.
+    public StreamingResponseBody exportRecipesNdjson() {
+        final boolean admin = isAdmin();
+        final String userId = admin ? null : currentUserId();
+
+        return out -> {
+            ObjectWriter writer = objectMapper.writerFor(RecipeDto.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                gen.setRootValueSeparator(null);
+
+                Consumer<RecipeDto> writeLine = recipe -> {
+                    try {
+                        writer.writeValue(gen, recipe);
+                        gen.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+
+                try {
+                    if (admin) {
+                        recipeRepository.forEachAdmin(RecipeAdminFilter.NONE, owned -> writeLine.accept(owned.recipe()));
+                    } else {
+                        recipeRepository.forEachForUser(userId, writeLine);
+                    }
+                } catch (UncheckedIOException e) {
+                    throw e.getCause(); // typisk klienten som har lukket forbindelsen
+                }
+            }
+        };
+    }
+
+    // Rangert fulltekstsøk i egne oppskrifter (indeksen er per eier, så admin får ingen treff)
+    public List<RecipeSummaryDto> searchRecipes(String query, Integer limit) {
+        if (query == null || query.isBlank() || isAdmin()) {
+            return List.of();
+        }
+
+        String userId = currentUserId();
+        int max = limit == null || limit <= 0 ? DEFAULT_SEARCH_LIMIT : Math.min(limit, MAX_PAGE_SIZE);
+
+        List<String> rankedIds = recipeSearchIndex.search(userId, query, max);
+        if (rankedIds.isEmpty()) {
+            return List.of();
+        }
+
+        // Indeksen kan ligge et øyeblikk bak en sletting; det som ikke finnes i DB faller bort her
+        Map<String, RecipeSummaryDto> byId = new HashMap<>();
+        for (RecipeSummaryDto summary : recipeRepository.findSummariesByIdsForUser(userId, rankedIds)) {
+            byId.put(summary.getId(), summary);
+        }
+
+        List<RecipeSummaryDto> result = new ArrayList<>(rankedIds.size());
+        for (String id : rankedIds) {
+            RecipeSummaryDto summary = byId.get(id);
+            if (summary != null) result.add(summary);
+        }
+        return result;
+    }
+
+    // Tellinger for filter-sidepanelet, med samme filtre som søk/liste
+    public RecipeFacetsDto getFacets(String query, Boolean favorite, Boolean pinned, String category) {
+        if (isAdmin()) {
+            return new RecipeFacetsDto();
+        }
+
+        String userId = currentUserId();
+        List<String> searchHits = query == null || query.isBlank()
+                ? null
+                : recipeSearchIndex.search(userId, query, MAX_FACET_SEARCH_HITS);
+        String categoryFilter = category == null || category.isBlank() ? null : category.trim();
+
+        return recipeRepository.findFacetsForUser(userId, favorite, pinned, categoryFilter, searchHits);
+    }
+
+    // "Hva kan jeg lage?": egne oppskrifter rangert etter hvor mye av ingredienslisten brukeren har
+    public List<CookWithMatchDto> cookWith(List<String> ingredients, Integer limit, Integer maxMissing) {
+        if (ingredients == null || ingredients.isEmpty() || isAdmin()) {
+            return List.of();
+        }
+        if (maxMissing != null && maxMissing < 0) {
+            throw new IllegalArgumentException("maxMissing must be >= 0");
+        }
+
+        String userId = currentUserId();
+        int max = limit == null || limit <= 0 ? DEFAULT_SEARCH_LIMIT : Math.min(limit, MAX_PAGE_SIZE);
+
+        List<IngredientIndex.Match> matches = ingredientIndex.match(userId, ingredients, max, maxMissing);
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, RecipeSummaryDto> byId = new HashMap<>();
+        List<String> ids = matches.stream().map(IngredientIndex.Match::recipeId).toList();
+        for (RecipeSummaryDto summary : recipeRepository.findSummariesByIdsForUser(userId, ids)) {
+            byId.put(summary.getId(), summary);
+        }
+
+        List<CookWithMatchDto> result = new ArrayList<>(matches.size());
+        for (IngredientIndex.Match match : matches) {
+            RecipeSummaryDto summary = byId.get(match.recipeId());
+            if (summary == null) continue;
+            result.add(new CookWithMatchDto(summary, match.matched(), match.total(), match.coverage(), match.missing()));
+        }
+        return result;
+    }
+
+    @Transactional(readOnly = true)
     public Optional<RecipeDto> getRecipeById(String id) {
         if (isAdmin()) return recipeRepository.findByIdAdmin(id);
         return recipeRepository.findByIdForUser(currentUserId(), id);
     }
 
+    // ------------------------
+    // Delta-synk
+    // ------------------------
+
+    public RecipeChangesDto getChangesSince(LocalDateTime since, String cursor, Integer limit) {
+        final String userId = currentUserId();
+        final int pageSize = clampPageSize(limit);
+
+        // Når markøren utstedes; avgjør fullResyncRequired i neste kall
+        LocalDateTime serverTime = LocalDateTime.now();
+
+        // cursor vinner over since; since alene betyr "alt fra og med tidspunktet" som før
+        RecipeChangesCursor position = RecipeChangesCursor.decode(cursor);
+        if (position == null) {
+            position = RecipeChangesCursor.since(since != null ? since : LocalDateTime.of(1970, 1, 1, 0, 0));
+        }
+
+        List<RecipeDto> changed = recipeRepository.findChangedAfterForUser(userId, position.upserts(), pageSize + 1);
+        boolean moreChanged = changed.size() > pageSize;
+        if (moreChanged) {
+            changed = changed.subList(0, pageSize);
+        }
+
+        List<RecipeTombstoneDto> deleted = recipeRepository.findTombstonesAfterForUser(userId, position.deletes(), pageSize + 1);
+        boolean moreDeleted = deleted.size() > pageSize;
+        if (moreDeleted) {
+            deleted = deleted.subList(0, pageSize);
+        }
+
+        // Hver strøm fortsetter etter siste rad den leverte, eller står stille hvis den var tom.
+        // Ikke serverTime: en lagring stemplet før serverTime som committer etter spørringen ville
+        // da havnet bak markøren og aldri blitt sendt.
+        RecipeDto lastChanged = changed.isEmpty() ? null : changed.get(changed.size() - 1);
+        RecipeTombstoneDto lastDeleted = deleted.isEmpty() ? null : deleted.get(deleted.size() - 1);
+        RecipeChangesCursor next = new RecipeChangesCursor(
+                lastChanged != null
+                        ? new RecipeCursor(lastChanged.getUpdatedAt(), lastChanged.getId())
+                        : position.upserts(),
+                lastDeleted != null
+                        ? new RecipeCursor(lastDeleted.getDeletedAt(), lastDeleted.getId())
+                        : position.deletes(),
+                serverTime
+        );
+
+        // For klienter som fortsatt bruker since (ett tidsstempel, inklusivt): har en strøm flere
+        // sider, det eldste av strømmene med mer, så ingenting hoppes over; ellers det seneste av
+        // det begge har nådd, så since kommer videre selv om den ene strømmen står stille
+        LocalDateTime upsertsAt = next.upserts().updatedAt();
+        LocalDateTime deletesAt = next.deletes().updatedAt();
+        LocalDateTime nextSince;
+        if (moreChanged && moreDeleted) {
+            nextSince = upsertsAt.isBefore(deletesAt) ? upsertsAt : deletesAt;
+        } else if (moreChanged || moreDeleted) {
+            nextSince = moreChanged ? upsertsAt : deletesAt;
+        } else {
+            nextSince = upsertsAt.isAfter(deletesAt) ? upsertsAt : deletesAt;
+        }
+
+        // Tombstones ryddes etter retensjonen; sist synket før det kan slettinger ha gått tapt
+        boolean fullResync = (since != null || cursor != null)
+                && position.syncedAt().isBefore(serverTime.minusDays(tombstoneRetentionDays));
+
+        return RecipeChangesDto.builder()
+                .upserted(new ArrayList<>(changed))
+                .deleted(new ArrayList<>(deleted))
+                .nextSince(nextSince)
+                .nextCursor(next.encode())
+                .hasMore(moreChanged || moreDeleted)
+                .fullResyncRequired(fullResync)
+                .build();
+    }
+
+    // ------------------------
+    // ETag (conditional GET)
+    // ------------------------
+
+    // Sterk ETag for brukerens liste, fra count + max(updated_at) + max(last_viewed_at)
+    public String getRecipesEtag() {
+        if (isAdmin()) {
+            RecipeListVersion v = recipeRepository.findListVersionAdmin();
+            return strongEtag("list", "admin", v.count(), v.maxUpdatedAt(), v.maxLastViewedAt());
+        }
+
+        String userId = currentUserId();
+        RecipeListVersion v = recipeRepository.findListVersionForUser(userId);
+        return strongEtag("list", userId, v.count(), v.maxUpdatedAt(), v.maxLastViewedAt());
+    }
+
+    // Tom hvis oppskriften ikke finnes (da svarer vi 404 som før)
+    public Optional<String> getRecipeEtag(String id) {
+        Optional<RecipeVersion> version = isAdmin()
+                ? recipeRepository.findVersionAdmin(id)
+                : recipeRepository.findVersionForUser(currentUserId(), id);
+
+        return version.map(v -> strongEtag("recipe", id, v.updatedAt(), v.lastViewedAt(), v.viewCount()));
+    }
+
     // ------------------------------------
     // WRITE (admin er read-only, alltid 403)
     // ------------------------------------
@@ -82,11 +432,141 @@ public class RecipeService {
         return recipeRepository.saveForUser(currentUserId(), recipe);
     }
 
+    // ------------------------
+    // Bulk-import (JSON-array eller NDJSON)
+    // ------------------------
+
+    public BulkImportResultDto importRecipesBulk(InputStream body) throws IOException {
+        ensureAdminReadOnly();
+
+        final String userId = currentUserId();
+        final BulkImportResultDto result = new BulkImportResultDto();
+
+        List<RecipeDto> chunk = new ArrayList<>(bulkChunkSize);
+        List<Integer> chunkIndexes = new ArrayList<>(bulkChunkSize);
+        int index = 0;
+
+        // readValues leser både en JSON-array og linjeseparerte objekter, ett element om gangen
+        try (MappingIterator<RecipeDto> it = objectMapper.readerFor(RecipeDto.class).readValues(body)) {
+            while (it.hasNextValue()) {
+                if (index >= bulkMaxItems) {
+                    addBulkItem(result, index, null, "FAILED", "Too many recipes in one request (max " + bulkMaxItems + ")");
+                    break;
+                }
+
+                RecipeDto recipe = it.nextValue();
+                String error = validateForImport(recipe);
+                if (error != null) {
+                    addBulkItem(result, index, recipe.getId(), "FAILED", error);
+                } else {
+                    chunk.add(recipe);
+                    chunkIndexes.add(index);
+                }
+                index++;
+
+                if (chunk.size() >= bulkChunkSize) {
+                    saveBulkChunk(userId, chunk, chunkIndexes, result);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            // Resten av strømmen kan ikke leses; det som allerede er lagret beholdes
+            addBulkItem(result, index, null, "FAILED", "Malformed JSON: " + e.getOriginalMessage());
+        }
+
+        saveBulkChunk(userId, chunk, chunkIndexes, result);
+
+        result.getItems().sort(Comparator.comparingInt(BulkImportItemDto::getIndex));
+        return result;
+    }
+
+    private String validateForImport(RecipeDto recipe) {
+        if (recipe == null) {
+            return "Recipe is null";
+        }
+        Set<ConstraintViolation<RecipeDto>> violations = validator.validate(recipe);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+
+        // Som saveRecipe, men createdAt fra kilden beholdes (migrering fra andre apper)
+        LocalDateTime now = LocalDateTime.now();
+        if (recipe.getCreatedAt() == null) {
+            recipe.setCreatedAt(now);
+        }
+        recipe.setUpdatedAt(now);
+        return null;
+    }
+
+    private void saveBulkChunk(String userId, List<RecipeDto> chunk, List<Integer> indexes, BulkImportResultDto result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<RecipeSaveResult> saved = recipeRepository.saveAllForUser(userId, chunk);
+            for (int i = 0; i < saved.size(); i++) {
+                addBulkResult(result, indexes.get(i), saved.get(i));
+            }
+        } catch (RuntimeException e) {
+            // Hele chunken ble rullet tilbake; prøv én og én så bare de som faktisk feiler markeres
+            System.err.println("Bulk import chunk failed, retrying " + chunk.size() + " recipes one by one: " + e.getMessage());
+
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    addBulkResult(result, indexes.get(i), recipeRepository.saveAllForUser(userId, List.of(chunk.get(i))).get(0));
+                } catch (RuntimeException single) {
+                    addBulkItem(result, indexes.get(i), chunk.get(i).getId(), "FAILED", "Could not save recipe");
+                }
+            }
+        }
+
+        chunk.clear();
+        indexes.clear();
+    }
+
+    private static void addBulkResult(BulkImportResultDto result, int index, RecipeSaveResult saved) {
+        switch (saved.status()) {
+            case CREATED -> addBulkItem(result, index, saved.recipe().getId(), "CREATED", null);
+            case UPDATED -> addBulkItem(result, index, saved.recipe().getId(), "UPDATED", null);
+            case REJECTED -> addBulkItem(result, index, saved.recipe().getId(), "FAILED", "Recipe not found");
+        }
+    }
+
+    private static void addBulkItem(BulkImportResultDto result, int index, String id, String status, String error) {
+        result.getItems().add(new BulkImportItemDto(index, id, status, error));
+        switch (status) {
+            case "CREATED" -> result.setCreated(result.getCreated() + 1);
+            case "UPDATED" -> result.setUpdated(result.getUpdated() + 1);
+            default -> result.setFailed(result.getFailed() + 1);
+        }
+    }
+
     public boolean deleteRecipe(String id) {
         ensureAdminReadOnly();
         return recipeRepository.deleteByIdForUser(currentUserId(), id);
     }
 
+    public BulkDeleteResultDto deleteRecipes(List<String> ids) {
+        ensureAdminReadOnly();
+
+        if (ids == null || ids.isEmpty()) {
+            return new BulkDeleteResultDto();
+        }
+        Set<String> unique = new LinkedHashSet<>(ids);
+        if (unique.size() > MAX_BULK_DELETE) {
+            throw new IllegalArgumentException("Too many ids (max " + MAX_BULK_DELETE + ")");
+        }
+
+        List<String> deleted = recipeRepository.deleteAllForUser(currentUserId(), unique);
+
+        Set<String> deletedSet = new HashSet<>(deleted);
+        List<String> notFound = unique.stream().filter(id -> !deletedSet.contains(id)).toList();
+        return new BulkDeleteResultDto(new ArrayList<>(deleted), new ArrayList<>(notFound));
+    }
+
     public void shareRecipe(String recipeId, String toUsername, String message) {
         ensureAdminReadOnly();
 
@@ -118,7 +598,7 @@ public class RecipeService {
 
         // 3) opprett share (PENDING)
         final RecipeShareEntity share = new RecipeShareEntity();
-        share.setId(UUID.randomUUID().toString());
+        share.setId(Ids.newId());
         share.setRecipeId(original.getId());
         share.setFromUserId(fromUserId);
         share.setToUserId(receiver.getId());
@@ -132,6 +612,8 @@ public class RecipeService {
         recipeShareRepo.save(share);
     }
 
+    // Bufres og skrives i batch av RecipeViewBuffer; oppskriften leses fra cachen, så requesten
+    // gjør normalt ingen DB-kall. Svaret viser tellerne som de blir når bufferet er skrevet.
     public RecipeDto markViewed(String recipeId) {
         ensureAdminReadOnly();
 
@@ -140,11 +622,15 @@ public class RecipeService {
         RecipeDto recipe = recipeRepository.findByIdForUser(userId, recipeId)
                 .orElseThrow(() -> new RuntimeException("Recipe not found"));
 
-        recipe.setLastViewedAt(LocalDateTime.now());
-        Integer vc = recipe.getViewCount() != null ? recipe.getViewCount() : 0;
-        recipe.setViewCount(vc + 1);
+        RecipeViewBuffer.PendingSnapshot pending = recipeViewBuffer.record(userId, recipeId, LocalDateTime.now());
 
-        return recipeRepository.saveForUser(userId, recipe);
+        int stored = recipe.getViewCount() != null ? recipe.getViewCount() : 0;
+        recipe.setViewCount(stored + (int) pending.count());
+        if (pending.lastViewedAt() != null
+                && (recipe.getLastViewedAt() == null || pending.lastViewedAt().isAfter(recipe.getLastViewedAt()))) {
+            recipe.setLastViewedAt(pending.lastViewedAt());
+        }
+        return recipe;
     }
 
     public RecipeDto setFavorite(String recipeId, boolean favorite) {
@@ -152,13 +638,11 @@ public class RecipeService {
 
         final String userId = currentUserId();
 
-        RecipeDto recipe = recipeRepository.findByIdForUser(userId, recipeId)
-                .orElseThrow(() -> new RuntimeException("Recipe not found"));
-
-        recipe.setFavorite(favorite);
-        recipe.setFavoritedAt(favorite ? LocalDateTime.now() : null);
+        if (!recipeRepository.setFavoriteForUser(userId, recipeId, favorite, LocalDateTime.now())) {
+            throw new RuntimeException("Recipe not found");
+        }
 
-        return recipeRepository.saveForUser(userId, recipe);
+        return reload(userId, recipeId);
     }
 
     public RecipeDto setPinned(String recipeId, boolean pinned) {
@@ -166,13 +650,11 @@ public class RecipeService {
 
         final String userId = currentUserId();
 
-        RecipeDto recipe = recipeRepository.findByIdForUser(userId, recipeId)
-                .orElseThrow(() -> new RuntimeException("Recipe not found"));
-
-        recipe.setPinned(pinned);
-        recipe.setPinnedAt(pinned ? LocalDateTime.now() : null);
+        if (!recipeRepository.setPinnedForUser(userId, recipeId, pinned, LocalDateTime.now())) {
+            throw new RuntimeException("Recipe not found");
+        }
 
-        return recipeRepository.saveForUser(userId, recipe);
+        return reload(userId, recipeId);
     }
 
     public RecipeDto setCoverImage(String recipeId, String coverImageId) {
@@ -184,11 +666,11 @@ public class RecipeService {
 
         final String userId = currentUserId();
 
-        RecipeDto recipe = recipeRepository.findByIdForUser(userId, recipeId)
-                .orElseThrow(() -> new RuntimeException("Recipe not found"));
+        if (!recipeRepository.setCoverImageForUser(userId, recipeId, normalized, LocalDateTime.now())) {
+            throw new RuntimeException("Recipe not found");
+        }
 
-        recipe.setCoverImageId(normalized);
-        return recipeRepository.saveForUser(userId, recipe);
+        return reload(userId, recipeId);
     }
 
     // ------------------------
@@ -203,43 +685,18 @@ public class RecipeService {
         );
 
         if (aiRecipe != null) {
-            if (aiRecipe.getDescription() == null || aiRecipe.getDescription().isBlank()) {
-                aiRecipe.setDescription(
-                        "Beskrivelse ikke funnet i teksten. Rediger gjerne denne oppskriften."
-                );
-            }
-            return aiRecipe;
+            return withDescriptionFallback(aiRecipe, "teksten");
         }
 
         System.err.println("RecipeService: AI parsing failed, using stub fallback");
-
-        return RecipeDto.builder()
-                .id(UUID.randomUUID().toString())
-                .title("Imported: " +
-                        request.getText().substring(0,
-                                Math.min(50, request.getText().length())))
-                .description(request.getText())
-                .servings(4)
-                .ingredients(new ArrayList<>())
-                .steps(new ArrayList<>())
-                .metadata(RecipeMetadataDto.builder()
-                        .sourceUrl(request.getSourceUrl())
-                        .importMethod("stub")
-                        .categories(new ArrayList<>())
-                        .build())
-                .build();
+        return stubFromText(request.getText(), request.getSourceUrl());
     }
 
     public RecipeDto importRecipeFromImage(MultipartFile image) {
         RecipeDto aiRecipe = recipeParserService.parseImageToRecipe(image);
 
         if (aiRecipe != null) {
-            if (aiRecipe.getDescription() == null || aiRecipe.getDescription().isBlank()) {
-                aiRecipe.setDescription(
-                        "Beskrivelse ikke funnet i bildet. Rediger gjerne denne oppskriften."
-                );
-            }
-            return aiRecipe;
+            return withDescriptionFallback(aiRecipe, "bildet");
         }
 
         System.err.println("RecipeService: AI image parsing failed, returning null");
@@ -254,22 +711,71 @@ public class RecipeService {
         RecipeDto aiRecipe = recipeParserService.parseFileToRecipe(file);
 
         if (aiRecipe != null) {
-            if (aiRecipe.getDescription() == null || aiRecipe.getDescription().isBlank()) {
-                aiRecipe.setDescription(
-                        "Beskrivelse ikke funnet i filen. Rediger gjerne denne oppskriften."
-                );
-            }
-            return aiRecipe;
+            return withDescriptionFallback(aiRecipe, "filen");
         }
 
         System.err.println("RecipeService: file parsing failed, returning null");
         return null;
     }
 
+    // Felles for synkron import og RecipeImportJobService
+    static RecipeDto withDescriptionFallback(RecipeDto aiRecipe, String source) {
+        if (aiRecipe.getDescription() == null || aiRecipe.getDescription().isBlank()) {
+            aiRecipe.setDescription(
+                    "Beskrivelse ikke funnet i " + source + ". Rediger gjerne denne oppskriften."
+            );
+        }
+        return aiRecipe;
+    }
+
+    static RecipeDto stubFromText(String text, String sourceUrl) {
+        return RecipeDto.builder()
+                .id(Ids.newId())
+                .title("Imported: " +
+                        text.substring(0,
+                                Math.min(50, text.length())))
+                .description(text)
+                .servings(4)
+                .ingredients(new ArrayList<>())
+                .steps(new ArrayList<>())
+                .metadata(RecipeMetadataDto.builder()
+                        .sourceUrl(sourceUrl)
+                        .importMethod("stub")
+                        .categories(new ArrayList<>())
+                        .build())
+                .build();
+    }
+
     // ------------------------
     // Helpers
     // ------------------------
 
+    // Leser tilbake etter en målrettet UPDATE (endepunktene returnerer hele oppskriften)
+    private RecipeDto reload(String userId, String recipeId) {
+        return recipeRepository.findByIdForUser(userId, recipeId)
+                .orElseThrow(() -> new RuntimeException("Recipe not found"));
+    }
+
+    private static String strongEtag(Object... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (Object part : parts) {
+            sb.append(part).append('|');
+        }
+
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static int clampPageSize(Integer limit) {
+        if (limit == null || limit <= 0) return DEFAULT_PAGE_SIZE;
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
     private void ensureAdminReadOnly() {
         if (isAdmin()) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin is read-only");
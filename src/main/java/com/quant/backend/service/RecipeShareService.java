@@ -3,6 +3,7 @@ package com.quant.backend.service;
 import com.quant.backend.auth.UserJpaRepository;
 import com.quant.backend.controller.RecipeShareController;
 import com.quant.backend.dto.*;
+import com.quant.backend.entity.Ids;
 import com.quant.backend.entity.RecipeShareEntity;
 import com.quant.backend.repository.RecipeRepository;
 import com.quant.backend.repository.RecipeShareJpaRepository;
@@ -13,7 +14,6 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.UUID;
 
 @Service
 public class RecipeShareService {
@@ -73,7 +73,7 @@ public class RecipeShareService {
 
         // lag kopi til mottaker (ny id)
         var copy = deepCopyRecipe(original);
-        copy.setId(UUID.randomUUID().toString());
+        copy.setId(Ids.newId());
 
         LocalDateTime now = LocalDateTime.now();
 
@@ -168,10 +168,12 @@ public class RecipeShareService {
         return copy;
     }
 
+    @Transactional(readOnly = true)
     public long inboxCount(String userId) {
         return shareRepo.countByToUserIdAndStatus(userId, RecipeShareEntity.Status.PENDING);
     }
 
+    @Transactional(readOnly = true)
     public java.util.List<RecipeShareController.InboxShareItem> inbox(String userId) {
         var shares = shareRepo.findByToUserIdAndStatusOrderByCreatedAtDesc(
                 userId, RecipeShareEntity.Status.PENDING
@@ -0,0 +1,31 @@
+package com.quant.backend.service;
+
+import com.quant.backend.repository.RecipeTombstoneJpaRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Component
+public class RecipeTombstoneCleanupJob {
+
+    private final RecipeTombstoneJpaRepository tombstoneRepo;
+    private final int retentionDays;
+
+    public RecipeTombstoneCleanupJob(RecipeTombstoneJpaRepository tombstoneRepo,
+                                     @Value("${quant.recipes.tombstone-retention-days:30}") int retentionDays) {
+        this.tombstoneRepo = tombstoneRepo;
+        this.retentionDays = retentionDays;
+    }
+
+    // Hver natt kl 03:30 (etter share-cleanup)
+    @Scheduled(cron = "0 30 3 * * *")
+    @Transactional
+    public void cleanupOldTombstones() {
+        // Klienter som ikke har synket innen retensjonen får fullResyncRequired
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        tombstoneRepo.deleteOlderThan(cutoff);
+    }
+}
@@ -0,0 +1,217 @@
+package com.quant.backend.service;
+
+import com.quant.backend.repository.RecipeViewsFlushedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind buffer for visninger (POST /api/recipes/{id}/view).
+ *
+ * Visninger samles i minnet per (oppskrift, eier) og skrives periodisk som én JDBC batch-UPDATE,
+ * i stedet for én transaksjon per åpning. ConcurrentHashMap.compute låser kun bin-en til nøkkelen,
+ * så samtidige visninger av ulike oppskrifter konkurrerer ikke om samme lås.
+ *
+ * Bufferet er begrenset (quant.views.max-pending). Når det er fullt, telles visninger av nye
+ * oppskrifter som droppet, og en tidlig flush startes i bakgrunnen; request-tråden venter aldri på
+ * databasen. Ved nedstengning tømmes det en siste gang.
+ *
+ * Etter en vellykket flush publiseres RecipeViewsFlushedEvent, så CachingRecipeRepository kan
+ * kaste oppskriftene med gamle tellere.
+ */
+@Component
+public class RecipeViewBuffer {
+
+    private static final String FLUSH_SQL = """
+            UPDATE recipes
+            SET view_count = COALESCE(view_count, 0) + ?,
+                last_viewed_at = CASE
+                    WHEN last_viewed_at IS NULL OR last_viewed_at < ? THEN ?
+                    ELSE last_viewed_at
+                END
+            WHERE id = ? AND owner_user_id = ? AND deleted_at IS NULL
+            """;
+
+    private record Key(String recipeId, String ownerUserId) {}
+
+    // Det som ennå ikke er skrevet for én oppskrift, tatt under bin-låsen
+    public record PendingSnapshot(long count, LocalDateTime lastViewedAt) {}
+
+    // Muteres kun inne i ConcurrentHashMap.compute, dvs. under bin-låsen
+    private static final class PendingViews {
+        long count;
+        LocalDateTime lastViewedAt;
+
+        void add(long views, LocalDateTime viewedAt) {
+            count += views;
+            if (lastViewedAt == null || viewedAt.isAfter(lastViewedAt)) {
+                lastViewedAt = viewedAt;
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher events;
+    private final int maxPending;
+
+    private final ConcurrentHashMap<Key, PendingViews> pending = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+
+    // Tidlig flush når bufferet er fullt; maks én i kø om gangen
+    private final ExecutorService earlyFlusher;
+    private final AtomicBoolean earlyFlushRequested = new AtomicBoolean();
+
+    private final Counter bufferedViews;
+    private final Counter flushedViews;
+    private final Counter droppedViews;
+    private final Timer flushTimer;
+
+    public RecipeViewBuffer(JdbcTemplate jdbcTemplate,
+                            MeterRegistry meterRegistry,
+                            ApplicationEventPublisher events,
+                            @Value("${quant.views.max-pending:10000}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.events = events;
+        this.maxPending = maxPending;
+
+        this.earlyFlusher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "recipe-view-flush");
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.bufferedViews = Counter.builder("quant.recipe.views.buffered")
+                .description("Views accepted into the write-behind buffer")
+                .register(meterRegistry);
+        this.flushedViews = Counter.builder("quant.recipe.views.flushed")
+                .description("Views written to the database")
+                .register(meterRegistry);
+        this.droppedViews = Counter.builder("quant.recipe.views.dropped")
+                .description("Views dropped because the buffer was full")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("quant.recipe.views.flush")
+                .description("Time spent writing buffered views")
+                .register(meterRegistry);
+        Gauge.builder("quant.recipe.views.pending", pending, Map::size)
+                .description("Recipes with unflushed views")
+                .register(meterRegistry);
+    }
+
+    // Returnerer visningene som nå venter for oppskriften, inkludert denne.
+    // (0, null) hvis bufferet var fullt og visningen ble droppet.
+    public PendingSnapshot record(String ownerUserId, String recipeId, LocalDateTime viewedAt) {
+        Key key = new Key(recipeId, ownerUserId);
+
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            // Fullt buffer: dropp heller én visning enn å la requesten vente på en batch-UPDATE
+            droppedViews.increment();
+            requestEarlyFlush();
+            return new PendingSnapshot(0, null);
+        }
+
+        PendingSnapshot[] snapshot = new PendingSnapshot[1];
+        pending.compute(key, (k, views) -> {
+            PendingViews v = views != null ? views : new PendingViews();
+            v.add(1, viewedAt);
+            snapshot[0] = new PendingSnapshot(v.count, v.lastViewedAt);
+            return v;
+        });
+        bufferedViews.increment();
+        return snapshot[0];
+    }
+
+    @Scheduled(fixedDelayString = "${quant.views.flush-interval-ms:5000}")
+    public void flush() {
+        synchronized (flushLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            // remove() er atomisk mot compute(): en visning havner enten i denne batchen eller i en ny entry
+            List<Map.Entry<Key, PendingViews>> batch = new ArrayList<>();
+            for (Key key : pending.keySet()) {
+                PendingViews views = pending.remove(key);
+                if (views != null) {
+                    batch.add(Map.entry(key, views));
+                }
+            }
+
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                flushTimer.record(() -> jdbcTemplate.batchUpdate(FLUSH_SQL, batch, batch.size(), (ps, entry) -> {
+                    PendingViews views = entry.getValue();
+                    Timestamp viewedAt = Timestamp.valueOf(views.lastViewedAt);
+                    ps.setLong(1, views.count);
+                    ps.setTimestamp(2, viewedAt);
+                    ps.setTimestamp(3, viewedAt);
+                    ps.setString(4, entry.getKey().recipeId());
+                    ps.setString(5, entry.getKey().ownerUserId());
+                }));
+                flushedViews.increment(batch.stream().mapToLong(e -> e.getValue().count).sum());
+            } catch (Exception e) {
+                System.err.println("RecipeViewBuffer: flush failed, re-queueing - " + e.getMessage());
+                requeue(batch);
+                return;
+            }
+
+            events.publishEvent(new RecipeViewsFlushedEvent(batch.stream()
+                    .map(e -> new RecipeViewsFlushedEvent.ViewedRecipe(e.getKey().ownerUserId(), e.getKey().recipeId()))
+                    .toList()));
+        }
+    }
+
+    private void requestEarlyFlush() {
+        if (!earlyFlushRequested.compareAndSet(false, true)) {
+            return;
+        }
+        earlyFlusher.execute(() -> {
+            try {
+                flush();
+            } finally {
+                earlyFlushRequested.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        earlyFlusher.shutdown();
+        flush();
+    }
+
+    private void requeue(List<Map.Entry<Key, PendingViews>> batch) {
+        for (Map.Entry<Key, PendingViews> entry : batch) {
+            PendingViews failed = entry.getValue();
+
+            if (pending.size() >= maxPending && !pending.containsKey(entry.getKey())) {
+                droppedViews.increment(failed.count);
+                continue;
+            }
+
+            pending.merge(entry.getKey(), failed, (current, ignored) -> {
+                current.add(failed.count, failed.lastViewedAt);
+                return current;
+            });
+        }
+    }
+}
@@ -0,0 +1,8 @@
+-- ============================
+-- Delta sync pages tombstones on (deleted_at, recipe_id)
+-- ============================
+
+CREATE INDEX IF NOT EXISTS idx_recipe_tombstones_owner_deleted_at_id
+    ON recipe_tombstones(owner_user_id, deleted_at, recipe_id);
+
+DROP INDEX IF EXISTS idx_recipe_tombstones_owner_deleted_at;
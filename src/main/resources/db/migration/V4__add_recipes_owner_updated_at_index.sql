@@ -0,0 +1,13 @@
+-- ============================
+-- Keyset pagination on (updated_at, id)
+-- ============================
+
+UPDATE recipes
+SET updated_at = COALESCE(created_at, NOW())
+WHERE updated_at IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_recipes_owner_updated_at_id
+    ON recipes(owner_user_id, updated_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_recipes_updated_at_id
+    ON recipes(updated_at DESC, id DESC);
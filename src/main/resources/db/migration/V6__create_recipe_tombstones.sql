@@ -0,0 +1,17 @@
+-- ============================
+-- Tombstones for delta sync
+-- ============================
+
+CREATE TABLE IF NOT EXISTS recipe_tombstones (
+    recipe_id     VARCHAR(36) PRIMARY KEY,
+    owner_user_id VARCHAR(36) NOT NULL,
+    deleted_at    TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_recipe_tombstones_owner_deleted_at
+    ON recipe_tombstones(owner_user_id, deleted_at);
+
+CREATE INDEX IF NOT EXISTS idx_recipe_tombstones_deleted_at
+    ON recipe_tombstones(deleted_at);
+
+-- Upserts leser recipes på (owner_user_id, updated_at); dekkes av idx_recipes_owner_updated_at_id (V4)
@@ -0,0 +1,7 @@
+-- ============================
+-- Category facets: GROUP BY category over a user's recipes
+-- ============================
+
+-- (recipe_id, category) lets the facet join read categories from the index alone
+CREATE INDEX IF NOT EXISTS idx_recipe_categories_recipe_category
+    ON recipe_categories(recipe_id, category);
@@ -0,0 +1,15 @@
+-- ============================
+-- Content-addressed cache for AI recipe parses (RecipeParseCache)
+-- ============================
+
+CREATE TABLE IF NOT EXISTS ai_parse_cache (
+    cache_key      VARCHAR(64) PRIMARY KEY,
+    import_mode    VARCHAR(16) NOT NULL,
+    prompt_version VARCHAR(32) NOT NULL,
+    response       TEXT NOT NULL,
+    created_at     TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Admin invalidation per mode (DELETE /api/admin/parse-cache?mode=TEXT)
+CREATE INDEX IF NOT EXISTS idx_ai_parse_cache_import_mode
+    ON ai_parse_cache(import_mode);
@@ -0,0 +1,263 @@
+package com.quant.backend.ai;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Mot en lokal HttpServer: bodies skrevet gjennom pipen, strømmede svar som stopper opp, og at
+ * plassen i semaforen frigis uansett utfall.
+ */
+class HttpClientClaudeTransportTest {
+
+    private static final String PATH = "/v1/messages";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Slippes når testen er ferdig, så handlere som henger ikke holder serveren
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private HttpServer server;
+    private HttpClientClaudeTransport transport;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        transport = new HttpClientClaudeTransport(meterRegistry,
+                "http://127.0.0.1:" + server.getAddress().getPort(),
+                "test-key",
+                Duration.ofSeconds(2),
+                Duration.ofSeconds(5),
+                1,
+                Duration.ofMillis(200),
+                Duration.ofMillis(300));
+    }
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        transport.shutdown();
+        server.stop(0);
+    }
+
+    // --------------------------------------------------
+    // postJson(path, BodyWriter)
+    // --------------------------------------------------
+
+    @Test
+    void bodyLargerThanPipeBufferArrivesIntact() throws Exception {
+        byte[] payload = new byte[5 * 1024 * 1024 + 123];
+        new Random(7).nextBytes(payload);
+        AtomicReference<byte[]> received = new AtomicReference<>();
+        server.createContext(PATH, exchange -> {
+            received.set(exchange.getRequestBody().readAllBytes());
+            respond(exchange, 200, "{\"ok\":true}");
+        });
+
+        String response = transport.postJson(PATH, out -> {
+            // Små skrivinger, så skriveren må vente på at HttpClient leser fra pipen
+            for (int off = 0; off < payload.length; off += 8192) {
+                out.write(payload, off, Math.min(8192, payload.length - off));
+            }
+        });
+
+        assertThat(response).isEqualTo("{\"ok\":true}");
+        assertThat(received.get()).isEqualTo(payload);
+        assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void writerIoExceptionFailsTheRequest() throws Exception {
+        CountDownLatch writerDone = new CountDownLatch(1);
+        server.createContext(PATH, exchange -> {
+            try {
+                exchange.getRequestBody().readAllBytes();
+                respond(exchange, 200, "{}");
+            } catch (IOException e) {
+                exchange.close();
+            }
+        });
+
+        assertThatThrownBy(() -> transport.postJson(PATH, out -> {
+            try {
+                out.write(new byte[200 * 1024]);
+                throw new IOException("bildet kunne ikke leses");
+            } finally {
+                writerDone.countDown();
+            }
+        }))
+                .isInstanceOf(IOException.class)
+                .hasStackTraceContaining("bildet kunne ikke leses");
+
+        assertThat(writerDone.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void writerRuntimeExceptionFailsTheRequest() {
+        server.createContext(PATH, exchange -> {
+            try {
+                exchange.getRequestBody().readAllBytes();
+                respond(exchange, 200, "{}");
+            } catch (IOException e) {
+                exchange.close();
+            }
+        });
+
+        assertThatThrownBy(() -> transport.postJson(PATH, out -> {
+            out.write("{\"model\":".getBytes(StandardCharsets.UTF_8));
+            throw new IllegalStateException("ugyldig bilde");
+        }))
+                .isInstanceOf(IOException.class)
+                .hasStackTraceContaining("ugyldig bilde");
+
+        assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void errorStatusAfterPipedBodyIsReported() {
+        server.createContext(PATH, exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 413, "{\"error\":\"too large\"}");
+        });
+
+        assertThatThrownBy(() -> transport.postJson(PATH, out -> out.write(new byte[100 * 1024])))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("HTTP 413")
+                .hasMessageContaining("too large");
+        assertThat(inFlight()).isZero();
+    }
+
+    // --------------------------------------------------
+    // postJsonForEvents
+    // --------------------------------------------------
+
+    @Test
+    void streamDeliversEvents() throws Exception {
+        handle(exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                write(out, "event: a\ndata: 1\n\n: keep-alive\n\nevent: b\ndata: 2\ndata: 3\n\n");
+            }
+        });
+
+        List<String> events = new ArrayList<>();
+        transport.postJsonForEvents(PATH, "{}", (event, data) -> events.add(event + "=" + data));
+
+        assertThat(events).containsExactly("a=1", "b=2\n3");
+    }
+
+    @Test
+    void stalledStreamTimesOutAndReleasesPermit() throws Exception {
+        handle(exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            write(out, "event: a\ndata: 1\n\n");
+            // Upstream henger uten å lukke
+            await(release);
+            out.close();
+        });
+
+        List<String> events = new ArrayList<>();
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> transport.postJsonForEvents(PATH, "{}", (event, data) -> events.add(event)))
+                .isInstanceOf(HttpTimeoutException.class);
+
+        assertThat(events).containsExactly("a");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(3));
+        assertThat(inFlight()).isZero();
+        assertThat(meterRegistry.get("quant.ai.claude.requests").tag("outcome", "timeout").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void abortFromCallbackReleasesPermit() throws Exception {
+        handle(exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            write(out, "event: a\ndata: 1\n\n");
+            await(release);
+            out.close();
+        });
+
+        assertThatThrownBy(() -> transport.postJsonForEvents(PATH, "{}", (event, data) -> {
+            throw new IllegalStateException("klienten koblet fra");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void errorStatusIncludesBody() throws Exception {
+        handle(exchange -> {
+            byte[] body = "{\"error\":\"overloaded\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(529, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+
+        assertThatThrownBy(() -> transport.postJsonForEvents(PATH, "{}", (event, data) -> {}))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("HTTP 529")
+                .hasMessageContaining("overloaded");
+        assertThat(inFlight()).isZero();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void handle(HttpHandler handler) {
+        server.createContext(PATH, exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            handler.handle(exchange);
+        });
+    }
+
+    private double inFlight() {
+        return meterRegistry.get("quant.ai.claude.in-flight").gauge().value();
+    }
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.quant.backend.config;
+
+import com.quant.backend.ai.ClaudeClient;
+import com.quant.backend.auth.JwtService;
+import com.quant.backend.auth.UserJpaRepository;
+import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.dto.RecipeMetadataDto;
+import com.quant.backend.dto.RecipeTombstoneDto;
+import com.quant.backend.repository.CachingRecipeRepository;
+import com.quant.backend.repository.JpaRecipeRepository;
+import com.quant.backend.repository.RecipeCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Primary og replika er to separate H2-databaser med samme skjema, så det synes hvor hver
+ * spørring faktisk havner. (application-replica.yml deler database og kan ikke vise det.)
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing_primary;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "quant.datasource.replica.enabled=true",
+        "quant.datasource.replica.url=jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "quant.datasource.replica.username=sa"
+})
+@AutoConfigureMockMvc
+class ReplicaDataSourceConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserJpaRepository userRepo;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private JpaRecipeRepository recipeRepository;
+
+    @Autowired
+    private CachingRecipeRepository cachingRepository;
+
+    @MockBean
+    private ClaudeClient claudeClient;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @Autowired
+    void dataSources(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                     @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.replica = new JdbcTemplate(replicaDataSource);
+    }
+
+    @BeforeEach
+    void copySchemaToReplica() {
+        primary.update("delete from users");
+        primary.update("delete from ai_parse_cache");
+        replica.execute("drop all objects");
+        for (String statement : primary.queryForList("script nodata", String.class)) {
+            replica.execute(statement);
+        }
+    }
+
+    @Test
+    void writeAfterReadOnlyLookupInSameRequestGoesToPrimary() throws Exception {
+        when(claudeClient.complete(anyString())).thenReturn("{\"title\":\"Pannekaker\"}");
+        String token = jwtService.createToken("u1", "u1@x.no");
+
+        // Parse-cachen slår opp (readOnly → replika) og lagrer svaret (→ primary) i samme request
+        mockMvc.perform(post("/api/recipes/import-text")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"text\":\"Pannekaker: 3 egg, 5 dl melk\"}"))
+                .andExpect(status().isOk());
+
+        assertThat(count(primary, "ai_parse_cache")).isEqualTo(1);
+        assertThat(count(replica, "ai_parse_cache")).isZero();
+    }
+
+    @Test
+    void readOnlyTransactionReadsFromReplica() {
+        replica.update("insert into users (id, username, email, password_hash) values ('r1', 'kun_replika', 'replika@x.no', 'x')");
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        Boolean onReplica = readOnly.execute(tx -> userRepo.existsByEmailIgnoreCase("replika@x.no"));
+        Boolean onPrimary = readWrite.execute(tx -> userRepo.existsByEmailIgnoreCase("replika@x.no"));
+
+        assertThat(onReplica).isTrue();
+        assertThat(onPrimary).isFalse();
+    }
+
+    @Test
+    void deltaSyncReadsFromPrimary() {
+        // Uten innlogget bruker er det ingen read-your-writes; replikaen er tom og "henger etter"
+        String id = recipeRepository.saveForUser("u1", recipe("Lagret på primary")).getId();
+        RecipeCursor fromStart = new RecipeCursor(LocalDateTime.of(1970, 1, 1, 0, 0), "");
+
+        assertThat(recipeRepository.findChangedAfterForUser("u1", fromStart, 10))
+                .extracting(RecipeDto::getId).containsExactly(id);
+        recipeRepository.deleteAllForUser("u1", List.of(id));
+        assertThat(recipeRepository.findTombstonesAfterForUser("u1", fromStart, 10))
+                .extracting(RecipeTombstoneDto::getId).containsExactly(id);
+    }
+
+    @Test
+    void recipeCacheLoadsFromPrimary() {
+        // Skrivinger uten innlogget bruker (visningsflush, purge, admin) gir ingen read-your-writes
+        String id = recipeRepository.saveForUser("u2", recipe("Ikke replikert ennå")).getId();
+
+        assertThat(cachingRepository.findByIdForUser("u2", id)).map(RecipeDto::getTitle).contains("Ikke replikert ennå");
+        assertThat(cachingRepository.findAllForUser("u2")).extracting(RecipeDto::getId).containsExactly(id);
+    }
+
+    private static RecipeDto recipe(String title) {
+        return RecipeDto.builder()
+                .title(title)
+                .ingredients(new ArrayList<>())
+                .steps(new ArrayList<>())
+                .metadata(RecipeMetadataDto.builder().language("no").categories(new ArrayList<>()).build())
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static int count(JdbcTemplate jdbc, String table) {
+        Integer n = jdbc.queryForObject("select count(*) from " + table, Integer.class);
+        return n == null ? 0 : n;
+    }
+}
@@ -0,0 +1,64 @@
+package com.quant.backend.controller;
+
+import com.quant.backend.auth.JwtService;
+import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.dto.RecipeMetadataDto;
+import com.quant.backend.repository.JpaRecipeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Eksporten er en StreamingResponseBody: kroppen skrives på en async-tråd og requesten fullføres
+ * med en ASYNC-dispatch, som også går gjennom security-filterkjeden (uten JWT-en på nytt).
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:recipe_export;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureMockMvc
+class RecipeControllerExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private JpaRecipeRepository recipeRepository;
+
+    @Test
+    void exportCompletesOnTheAsyncDispatch() throws Exception {
+        recipeRepository.saveForUser("u1", RecipeDto.builder()
+                .title("Fiskesuppe")
+                .ingredients(new ArrayList<>())
+                .steps(new ArrayList<>())
+                .metadata(RecipeMetadataDto.builder().language("no").categories(new ArrayList<>()).build())
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build());
+
+        MvcResult started = mockMvc.perform(get("/api/recipes/export")
+                        .header("Authorization", "Bearer " + jwtService.createToken("u1", "u1@x.no")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"title\":\"Fiskesuppe\"")));
+    }
+}
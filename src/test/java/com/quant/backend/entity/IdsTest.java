@@ -0,0 +1,139 @@
+package com.quant.backend.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdsTest {
+
+    private static final long FROZEN = 1_735_732_800_000L; // 2025-01-01T12:00Z
+
+    @Test
+    void idsAreVersion7WithRfcVariant() {
+        UUID id = Ids.newUuid();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(Ids.newId()).hasSize(36);
+    }
+
+    @Test
+    void timestampIsCurrentEpochMillis() {
+        long before = System.currentTimeMillis();
+        UUID id = Ids.newUuid();
+        long after = System.currentTimeMillis();
+
+        // Kan ha lånt noen millisekunder fremover hvis telleren nettopp ble brukt opp
+        assertThat(millis(id)).isBetween(before, after + 10);
+    }
+
+    @Test
+    void idsSortInCreationOrderWithinOneMillisecond() {
+        Ids.Generator generator = new Ids.Generator(() -> FROZEN);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(generator.next().toString());
+        }
+
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void sequenceRolloverBorrowsNextMillisecondAndKeepsOrder() {
+        Ids.Generator generator = new Ids.Generator(() -> FROZEN);
+
+        // 12-bits teller: mer enn 4096 id-er i samme millisekund må rulle over
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 3 * 4096; i++) {
+            ids.add(generator.next());
+        }
+
+        assertThat(ids.stream().map(UUID::toString).toList()).isSorted().doesNotHaveDuplicates();
+        assertThat(millis(ids.get(0))).isEqualTo(FROZEN);
+        assertThat(millis(ids.get(ids.size() - 1))).isGreaterThan(FROZEN);
+
+        for (int i = 1; i < ids.size(); i++) {
+            UUID previous = ids.get(i - 1);
+            UUID current = ids.get(i);
+            if (millis(current) != millis(previous)) {
+                assertThat(millis(current)).isEqualTo(millis(previous) + 1);
+                assertThat(sequence(previous)).isEqualTo(0xFFF);
+                assertThat(sequence(current)).isZero();
+            } else {
+                assertThat(sequence(current)).isEqualTo(sequence(previous) + 1);
+            }
+        }
+    }
+
+    @Test
+    void clockGoingBackwardsDoesNotBreakOrder() {
+        AtomicLong clock = new AtomicLong(FROZEN);
+        Ids.Generator generator = new Ids.Generator(clock::get);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(generator.next().toString());
+        }
+        clock.set(FROZEN - 5_000);
+        for (int i = 0; i < 100; i++) {
+            ids.add(generator.next().toString());
+        }
+
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void idsAreUniqueAndOrderedPerThreadUnderConcurrency() throws Exception {
+        int threads = 8;
+        int perThread = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    List<String> mine = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        mine.add(Ids.newId());
+                    }
+                    return mine;
+                }));
+            }
+            start.countDown();
+
+            Set<String> seen = new HashSet<>();
+            for (Future<List<String>> result : results) {
+                List<String> mine = result.get(30, TimeUnit.SECONDS);
+                // Hver tråd ser sine egne id-er i stigende rekkefølge
+                assertThat(mine).isSorted();
+                seen.addAll(mine);
+            }
+            assertThat(seen).hasSize(threads * perThread);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static long millis(UUID id) {
+        return id.getMostSignificantBits() >>> 16;
+    }
+
+    private static int sequence(UUID id) {
+        return (int) (id.getMostSignificantBits() & 0xFFF);
+    }
+}
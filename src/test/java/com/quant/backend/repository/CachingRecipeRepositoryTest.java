@@ -0,0 +1,117 @@
+package com.quant.backend.repository;
+
+import com.quant.backend.dto.RecipeDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingRecipeRepositoryTest {
+
+    private static final String OWNER = "owner-1";
+    private static final String ID = "recipe-1";
+
+    private final JpaRecipeRepository delegate = mock(JpaRecipeRepository.class);
+    private final CachingRecipeRepository cache =
+            new CachingRecipeRepository(delegate, new SimpleMeterRegistry(), 100, 1000, Duration.ofMinutes(10));
+
+    @Test
+    void cachesRecipeAfterFirstRead() {
+        when(delegate.findByIdForUser(OWNER, ID)).thenReturn(Optional.of(recipe("Pasta")));
+
+        assertThat(cache.findByIdForUser(OWNER, ID)).map(RecipeDto::getTitle).contains("Pasta");
+        assertThat(cache.findByIdForUser(OWNER, ID)).map(RecipeDto::getTitle).contains("Pasta");
+
+        verify(delegate, times(1)).findByIdForUser(OWNER, ID);
+    }
+
+    @Test
+    void returnsCopiesSoCallersCannotMutateTheCache() {
+        when(delegate.findByIdForUser(OWNER, ID)).thenReturn(Optional.of(recipe("Pasta")));
+
+        cache.findByIdForUser(OWNER, ID).orElseThrow().setTitle("Endret");
+
+        assertThat(cache.findByIdForUser(OWNER, ID)).map(RecipeDto::getTitle).contains("Pasta");
+    }
+
+    @Test
+    void missingRecipeIsNotCached() {
+        when(delegate.findByIdForUser(OWNER, ID)).thenReturn(Optional.empty());
+
+        assertThat(cache.findByIdForUser(OWNER, ID)).isEmpty();
+        assertThat(cache.findByIdForUser(OWNER, ID)).isEmpty();
+
+        verify(delegate, times(2)).findByIdForUser(OWNER, ID);
+    }
+
+    @Test
+    void readOverlappingAWriteDoesNotCacheTheOldVersion() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        when(delegate.findByIdForUser(OWNER, ID))
+                .thenAnswer(invocation -> {
+                    // Første lesing ser versjonen fra før skrivingen
+                    loading.countDown();
+                    releaseLoad.await(5, TimeUnit.SECONDS);
+                    return Optional.of(recipe("Gammel"));
+                })
+                .thenReturn(Optional.of(recipe("Ny")));
+        when(delegate.saveForUser(eq(OWNER), any())).thenReturn(recipe("Ny"));
+
+        CompletableFuture<Optional<RecipeDto>> read =
+                CompletableFuture.supplyAsync(() -> cache.findByIdForUser(OWNER, ID));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread writer = new Thread(() -> cache.saveForUser(OWNER, recipe("Ny")));
+        writer.start();
+        // Invalideringen venter på at lesingen av samme nøkkel blir ferdig
+        awaitBlockedOrDone(writer);
+        releaseLoad.countDown();
+        writer.join(5000);
+
+        assertThat(read.get(5, TimeUnit.SECONDS)).map(RecipeDto::getTitle).contains("Gammel");
+        assertThat(cache.findByIdForUser(OWNER, ID)).map(RecipeDto::getTitle).contains("Ny");
+    }
+
+    @Test
+    void listIsReloadedAfterWrite() {
+        when(delegate.findAllForUser(OWNER))
+                .thenReturn(List.of(recipe("Gammel")))
+                .thenReturn(List.of(recipe("Ny")));
+        when(delegate.saveForUser(eq(OWNER), any())).thenReturn(recipe("Ny"));
+
+        assertThat(cache.findAllForUser(OWNER)).extracting(RecipeDto::getTitle).containsExactly("Gammel");
+        cache.saveForUser(OWNER, recipe("Ny"));
+
+        assertThat(cache.findAllForUser(OWNER)).extracting(RecipeDto::getTitle).containsExactly("Ny");
+    }
+
+    private static void awaitBlockedOrDone(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            Thread.State state = thread.getState();
+            if (state == Thread.State.BLOCKED || state == Thread.State.WAITING
+                    || state == Thread.State.TIMED_WAITING || state == Thread.State.TERMINATED) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static RecipeDto recipe(String title) {
+        return RecipeDto.builder().id(ID).title(title).build();
+    }
+}
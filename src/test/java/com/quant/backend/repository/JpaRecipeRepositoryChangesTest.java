@@ -0,0 +1,105 @@
+package com.quant.backend.repository;
+
+import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.dto.RecipeMetadataDto;
+import com.quant.backend.dto.RecipeTombstoneDto;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Delta-synken pager på (tidspunkt, id): rader med samme tidsstempel skal komme nøyaktig én gang,
+ * også når en side slutter midt i gruppen.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@Import(JpaRecipeRepository.class)
+class JpaRecipeRepositoryChangesTest {
+
+    private static final String OWNER = "owner-1";
+    private static final LocalDateTime SAME_TIME = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    @Autowired
+    private JpaRecipeRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void pagesThroughRecipesWithIdenticalUpdatedAt() {
+        List<String> saved = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            saved.add(repository.saveForUser(OWNER, recipe(i)).getId());
+        }
+        repository.saveForUser("owner-2", recipe(99));
+
+        List<String> seen = new ArrayList<>();
+        RecipeCursor after = new RecipeCursor(SAME_TIME, "");
+        for (int round = 0; round < 10; round++) {
+            List<RecipeDto> page = repository.findChangedAfterForUser(OWNER, after, 3);
+            if (page.isEmpty()) {
+                break;
+            }
+            page.forEach(r -> seen.add(r.getId()));
+            RecipeDto last = page.get(page.size() - 1);
+            after = new RecipeCursor(last.getUpdatedAt(), last.getId());
+        }
+
+        assertThat(seen).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(saved);
+    }
+
+    @Test
+    void pagesThroughTombstonesFromTheSameBulkDelete() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(repository.saveForUser(OWNER, recipe(i)).getId());
+        }
+        // Én bulk-sletting gir samme deleted_at på alle
+        repository.deleteAllForUser(OWNER, ids);
+        // Les tidsstemplene slik databasen lagret dem, som i en ny request
+        entityManager.flush();
+        entityManager.clear();
+
+        List<String> seen = new ArrayList<>();
+        RecipeCursor after = new RecipeCursor(SAME_TIME, "");
+        for (int round = 0; round < 10; round++) {
+            List<RecipeTombstoneDto> page = repository.findTombstonesAfterForUser(OWNER, after, 2);
+            if (page.isEmpty()) {
+                break;
+            }
+            page.forEach(t -> seen.add(t.getId()));
+            RecipeTombstoneDto last = page.get(page.size() - 1);
+            after = new RecipeCursor(last.getDeletedAt(), last.getId());
+        }
+
+        assertThat(seen).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(ids);
+    }
+
+    @Test
+    void changesCursorRoundTrips() {
+        RecipeChangesCursor cursor = new RecipeChangesCursor(
+                new RecipeCursor(SAME_TIME, "abc"),
+                new RecipeCursor(SAME_TIME.plusSeconds(1), ""),
+                SAME_TIME.plusMinutes(1));
+
+        assertThat(RecipeChangesCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    private static RecipeDto recipe(int i) {
+        return RecipeDto.builder()
+                .title("Pasta " + i)
+                .ingredients(new ArrayList<>())
+                .steps(new ArrayList<>())
+                .metadata(RecipeMetadataDto.builder().language("no").categories(new ArrayList<>()).build())
+                .createdAt(SAME_TIME)
+                .updatedAt(SAME_TIME)
+                .build();
+    }
+}
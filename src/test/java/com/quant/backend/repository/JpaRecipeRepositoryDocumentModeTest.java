@@ -0,0 +1,108 @@
+package com.quant.backend.repository;
+
+import com.quant.backend.dto.IngredientDto;
+import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.dto.RecipeMetadataDto;
+import com.quant.backend.dto.RecipeStepDto;
+import com.quant.backend.entity.RecipeEntity;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * DOCUMENT-modus på H2 (dev): content_doc må tåle en rundtur, og en lagring uten endrede
+ * kategorier skal ikke skrive recipe_categories på nytt.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.quant.backend.repository.SqlCapture",
+        "quant.recipes.storage-mode=DOCUMENT"
+})
+@Import(JpaRecipeRepository.class)
+class JpaRecipeRepositoryDocumentModeTest {
+
+    private static final String OWNER = "owner-1";
+
+    @Autowired
+    private JpaRecipeRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void contentDocumentRoundTrips() {
+        RecipeDto saved = repository.saveForUser(OWNER, recipe(List.of("middag", "pasta")));
+        entityManager.flush();
+        entityManager.clear();
+
+        RecipeDto loaded = repository.findByIdForUser(OWNER, saved.getId()).orElseThrow();
+
+        assertThat(loaded.getIngredients()).extracting(IngredientDto::getItem).containsExactly("spaghetti", "løk \"rød\"");
+        assertThat(loaded.getIngredients().get(0).getAmount()).isEqualTo(400.0);
+        assertThat(loaded.getSteps()).extracting(RecipeStepDto::getInstruction).containsExactly("Kok pastaen");
+        assertThat(loaded.getMetadata().getCategories()).containsExactly("middag", "pasta");
+
+        // Ingredienser/steg ligger bare i dokumentet
+        RecipeEntity entity = entityManager.find(RecipeEntity.class, saved.getId());
+        assertThat(entity.getIngredients()).isEmpty();
+        assertThat(entity.getSteps()).isEmpty();
+        assertThat(entity.getContentDocument()).isNotNull();
+    }
+
+    @Test
+    void resaveWithUnchangedCategoriesDoesNotRewriteCategoryRows() {
+        RecipeDto saved = repository.saveForUser(OWNER, recipe(List.of("middag", "pasta")));
+        entityManager.flush();
+        entityManager.clear();
+        SqlCapture.clear();
+
+        saved.setTitle("Pasta med ny tittel");
+        repository.saveForUser(OWNER, saved);
+        entityManager.flush();
+
+        assertThat(SqlCapture.writesTo("recipes")).hasSize(1);
+        assertThat(SqlCapture.writesTo("recipe_categories")).isEmpty();
+        assertThat(SqlCapture.writesTo("recipe_ingredients")).isEmpty();
+        assertThat(SqlCapture.writesTo("recipe_steps")).isEmpty();
+    }
+
+    @Test
+    void resaveWithChangedCategoriesUpdatesCategoryRows() {
+        RecipeDto saved = repository.saveForUser(OWNER, recipe(List.of("middag", "pasta")));
+        entityManager.flush();
+        entityManager.clear();
+        SqlCapture.clear();
+
+        saved.getMetadata().setCategories(new ArrayList<>(List.of("middag", "pasta", "rask")));
+        repository.saveForUser(OWNER, saved);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Bare den nye kategorien skrives; de to eksisterende radene står urørt
+        assertThat(SqlCapture.writesTo("recipe_categories")).hasSize(1).allMatch(sql -> sql.startsWith("insert"));
+        assertThat(repository.findByIdForUser(OWNER, saved.getId()).orElseThrow().getMetadata().getCategories())
+                .containsExactly("middag", "pasta", "rask");
+    }
+
+    private static RecipeDto recipe(List<String> categories) {
+        return RecipeDto.builder()
+                .title("Pasta")
+                .ingredients(new ArrayList<>(List.of(
+                        new IngredientDto(400.0, "g", "spaghetti", null, null),
+                        new IngredientDto(null, null, "løk \"rød\"", null, null)
+                )))
+                .steps(new ArrayList<>(List.of(new RecipeStepDto(1, "Kok pastaen", null))))
+                .metadata(RecipeMetadataDto.builder()
+                        .language("no")
+                        .categories(new ArrayList<>(categories))
+                        .build())
+                .build();
+    }
+}
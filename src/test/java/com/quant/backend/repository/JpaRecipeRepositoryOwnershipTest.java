@@ -0,0 +1,146 @@
+package com.quant.backend.repository;
+
+import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.dto.RecipeMetadataDto;
+import com.quant.backend.dto.RecipeTombstoneDto;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * En klient kan sende inn en hvilken som helst id. Lagring med en id som tilhører en annen bruker
+ * skal avvises uten å fjerne den andres (myk-slettede) rad eller tombstone.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "quant.recipes.delete-mode=SOFT"
+})
+@Import(JpaRecipeRepository.class)
+class JpaRecipeRepositoryOwnershipTest {
+
+    private static final String OWNER = "owner-1";
+    private static final String OTHER = "owner-2";
+    private static final RecipeCursor FROM_START = new RecipeCursor(LocalDateTime.of(1970, 1, 1, 0, 0), "");
+
+    @Autowired
+    private JpaRecipeRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void saveWithAnotherUsersDeletedIdIsRejectedAndLeavesTheirTombstone() {
+        String id = repository.saveForUser(OTHER, recipe(null, "Deres")).getId();
+        repository.deleteAllForUser(OTHER, List.of(id));
+        flushAndClear();
+
+        assertThatThrownBy(() -> repository.saveForUser(OWNER, recipe(id, "Min")))
+                .isInstanceOf(IllegalArgumentException.class);
+        flushAndClear();
+
+        assertThat(tombstoneIds(OTHER)).containsExactly(id);
+        assertThat(repository.findByIdForUser(OWNER, id)).isEmpty();
+    }
+
+    @Test
+    void saveWithAnotherUsersLiveIdIsRejected() {
+        String id = repository.saveForUser(OTHER, recipe(null, "Deres")).getId();
+        flushAndClear();
+
+        assertThatThrownBy(() -> repository.saveForUser(OWNER, recipe(id, "Min")))
+                .isInstanceOf(IllegalArgumentException.class);
+        flushAndClear();
+
+        assertThat(repository.findByIdForUser(OTHER, id)).map(RecipeDto::getTitle).contains("Deres");
+    }
+
+    @Test
+    void bulkSaveRejectsAnotherUsersDeletedIdBeforeTouchingIt() {
+        String theirs = repository.saveForUser(OTHER, recipe(null, "Deres")).getId();
+        repository.deleteAllForUser(OTHER, List.of(theirs));
+        flushAndClear();
+
+        List<RecipeSaveResult> results = repository.saveAllForUser(OWNER, List.of(
+                recipe(theirs, "Min"),
+                recipe(null, "Ny")
+        ));
+        flushAndClear();
+
+        assertThat(results).extracting(RecipeSaveResult::status)
+                .containsExactly(RecipeSaveResult.Status.REJECTED, RecipeSaveResult.Status.CREATED);
+        assertThat(tombstoneIds(OTHER)).containsExactly(theirs);
+    }
+
+    @Test
+    void idHeldOnlyByAnotherUsersTombstoneIsRejected() {
+        String id = repository.saveForUser(OTHER, recipe(null, "Deres")).getId();
+        repository.deleteAllForUser(OTHER, List.of(id));
+        // Raden er borte (som i HARD-modus), tombstonen er igjen til retensjonen går ut
+        repository.purgeSoftDeleted(LocalDateTime.now().plusHours(1), 100);
+        flushAndClear();
+
+        assertThatThrownBy(() -> repository.saveForUser(OWNER, recipe(id, "Min")))
+                .isInstanceOf(IllegalArgumentException.class);
+        flushAndClear();
+
+        assertThat(tombstoneIds(OTHER)).containsExactly(id);
+    }
+
+    @Test
+    void ownerCanDeleteARestoredIdAgain() {
+        String id = repository.saveForUser(OWNER, recipe(null, "Gammel")).getId();
+        repository.deleteAllForUser(OWNER, List.of(id));
+        repository.saveForUser(OWNER, recipe(id, "Gjenopprettet"));
+        flushAndClear();
+
+        assertThat(repository.deleteAllForUser(OWNER, List.of(id))).containsExactly(id);
+        flushAndClear();
+
+        assertThat(tombstoneIds(OWNER)).containsExactly(id);
+    }
+
+    @Test
+    void ownerCanRestoreOwnDeletedId() {
+        String id = repository.saveForUser(OWNER, recipe(null, "Gammel")).getId();
+        repository.deleteAllForUser(OWNER, List.of(id));
+        flushAndClear();
+
+        repository.saveForUser(OWNER, recipe(id, "Gjenopprettet"));
+        flushAndClear();
+
+        assertThat(repository.findByIdForUser(OWNER, id)).map(RecipeDto::getTitle).contains("Gjenopprettet");
+        assertThat(tombstoneIds(OWNER)).isEmpty();
+    }
+
+    private List<String> tombstoneIds(String userId) {
+        return repository.findTombstonesAfterForUser(userId, FROM_START, 100).stream()
+                .map(RecipeTombstoneDto::getId)
+                .toList();
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static RecipeDto recipe(String id, String title) {
+        return RecipeDto.builder()
+                .id(id)
+                .title(title)
+                .ingredients(new ArrayList<>())
+                .steps(new ArrayList<>())
+                .metadata(RecipeMetadataDto.builder().language("no").categories(new ArrayList<>()).build())
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,125 @@
+package com.quant.backend.repository;
+
+import com.quant.backend.dto.IngredientDto;
+import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.dto.RecipeMetadataDto;
+import com.quant.backend.dto.RecipeStepDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Samlingene er LAZY med @BatchSize: listen skal lastes med en håndfull spørringer uansett
+ * antall oppskrifter, ikke 1 + 3 per rad.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(JpaRecipeRepository.class)
+class JpaRecipeRepositoryQueryCountTest {
+
+    private static final String OWNER = "owner-1";
+    private static final int RECIPES = 500;
+    // Lik @BatchSize på samlingene i RecipeEntity
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private JpaRecipeRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private String someId;
+
+    @BeforeEach
+    void seed() {
+        for (int i = 0; i < RECIPES; i++) {
+            RecipeDto saved = repository.saveForUser(OWNER, recipe(i));
+            if (i == RECIPES / 2) {
+                someId = saved.getId();
+            }
+        }
+        // En annen eier, så spørringene faktisk må filtrere
+        repository.saveForUser("owner-2", recipe(RECIPES));
+
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAllForUserLoadsCollectionsInBatches() {
+        List<RecipeDto> all = repository.findAllForUser(OWNER);
+
+        assertThat(all).hasSize(RECIPES);
+        assertThat(all).allSatisfy(r -> {
+            assertThat(r.getIngredients()).hasSize(2);
+            assertThat(r.getSteps()).hasSize(2);
+            assertThat(r.getMetadata().getCategories()).containsExactly("middag", "pasta");
+        });
+
+        // 1 for oppskriftene + én batch per samling per BATCH_SIZE rader
+        long batches = (RECIPES + BATCH_SIZE - 1) / BATCH_SIZE;
+        assertThat(statistics.getPrepareStatementCount()).isBetween(1L, 1 + 3 * batches);
+    }
+
+    @Test
+    void findByIdForUserUsesAtMostOneQueryPerCollection() {
+        Optional<RecipeDto> recipe = repository.findByIdForUser(OWNER, someId);
+
+        assertThat(recipe).isPresent();
+        assertThat(recipe.get().getIngredients()).hasSize(2);
+        assertThat(recipe.get().getSteps()).hasSize(2);
+        assertThat(recipe.get().getMetadata().getCategories()).hasSize(2);
+
+        // Ingredienser joines via entity graph-en; steg og kategorier er én spørring hver
+        assertThat(statistics.getPrepareStatementCount()).isBetween(1L, 3L);
+    }
+
+    @Test
+    void findByIdForUserDoesNotSeeOtherOwnersRecipes() {
+        assertThat(repository.findByIdForUser("owner-2", someId)).isEmpty();
+    }
+
+    private static RecipeDto recipe(int i) {
+        return RecipeDto.builder()
+                .title("Pasta " + i)
+                .description("God middag")
+                .servings(4)
+                .ingredients(new ArrayList<>(List.of(
+                        new IngredientDto(400.0, "g", "spaghetti", null, null),
+                        new IngredientDto(null, null, "løk", null, null)
+                )))
+                .steps(new ArrayList<>(List.of(
+                        new RecipeStepDto(1, "Kok pastaen", null),
+                        new RecipeStepDto(2, "Stek løken", null)
+                )))
+                .metadata(RecipeMetadataDto.builder()
+                        .language("no")
+                        .categories(new ArrayList<>(List.of("middag", "pasta")))
+                        .build())
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.quant.backend.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Samler SQL-en Hibernate sender, for tester som må se hvilke tabeller som faktisk skrives
+public class SqlCapture implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.add(sql.replaceAll("\\s+", " ").trim().toLowerCase(Locale.ROOT));
+        return sql;
+    }
+
+    public static void clear() {
+        STATEMENTS.clear();
+    }
+
+    public static List<String> writesTo(String table) {
+        return STATEMENTS.stream()
+                .filter(sql -> sql.startsWith("insert into " + table + " ")
+                        || sql.startsWith("update " + table + " ")
+                        || sql.startsWith("delete from " + table + " "))
+                .toList();
+    }
+}
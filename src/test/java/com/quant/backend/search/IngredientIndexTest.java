@@ -0,0 +1,247 @@
+package com.quant.backend.search;
+
+import com.quant.backend.dto.IngredientDto;
+import com.quant.backend.dto.RecipeDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngredientIndexTest {
+
+    private static final String OWNER = "owner-1";
+    private static final List<String> STAPLES = List.of("salt", "pepper", "vann", "water");
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    // Bevisst med varianter, bøyninger, skrivemåter og basisvarer
+    private static final List<String> VOCABULARY = List.of(
+            "løk", "Løken", "rød løk", "Røde løker", "vårløk", "hvitløk",
+            "tomat", "Tomater", "hermetiske tomater", "egg", "Egg", "melk", "lettmelk",
+            "smør", "ost", "revet ost", "pasta", "spaghetti", "kylling", "kyllingfilet",
+            "ris", "basmatiris", "Crème fraîche", "creme fraiche", "salt", "Pepper", "vann",
+            "2 dl", "400 g spaghetti", "og"
+    );
+
+    private final IngredientIndex index = new IngredientIndex(STAPLES);
+
+    // --------------------------------------------------
+    // Normalisering
+    // --------------------------------------------------
+
+    @Test
+    void keyNormalizesCaseInflectionAndDiacritics() {
+        assertThat(IngredientIndex.key("Røde løker")).isEqualTo("rød løk");
+        assertThat(IngredientIndex.key("  Løken ")).isEqualTo("løk");
+        assertThat(IngredientIndex.key("Tomater")).isEqualTo(IngredientIndex.key("tomat"));
+        assertThat(IngredientIndex.key("Crème fraîche")).isEqualTo(IngredientIndex.key("creme fraiche"));
+    }
+
+    @Test
+    void keyDropsNumbersAndStopwords() {
+        assertThat(IngredientIndex.key("400 g spaghetti")).isEqualTo("g spaghetti");
+        assertThat(IngredientIndex.key("2")).isNull();
+        assertThat(IngredientIndex.key("og")).isNull();
+        assertThat(IngredientIndex.key("   ")).isNull();
+        assertThat(IngredientIndex.key(null)).isNull();
+    }
+
+    // --------------------------------------------------
+    // Dekning
+    // --------------------------------------------------
+
+    @Test
+    void generalIngredientCoversVariantsAndViceVersa() {
+        index.index(OWNER, recipe("variant", T0, "rød løk", "egg"));
+        index.index(OWNER, recipe("general", T0, "løk", "egg"));
+        index.index(OWNER, recipe("other-head", T0, "vårløk", "egg"));
+
+        assertThat(index.match(OWNER, List.of("løk"), 10, null))
+                .extracting(IngredientIndex.Match::recipeId)
+                .containsExactlyInAnyOrder("variant", "general");
+        assertThat(index.match(OWNER, List.of("Røde løker"), 10, null))
+                .extracting(IngredientIndex.Match::recipeId)
+                .containsExactlyInAnyOrder("variant", "general");
+    }
+
+    @Test
+    void staplesAreNotCountedAndMissingUsesRecipeSpelling() {
+        index.index(OWNER, recipe("r", T0, "Tomater", "salt", "Pepper", "Egg", "egg"));
+
+        List<IngredientIndex.Match> matches = index.match(OWNER, List.of("tomat"), 10, null);
+
+        assertThat(matches).hasSize(1);
+        IngredientIndex.Match match = matches.get(0);
+        assertThat(match.matched()).isEqualTo(1);
+        assertThat(match.total()).isEqualTo(2);
+        assertThat(match.missing()).containsExactly("Egg");
+    }
+
+    @Test
+    void rankedByCoverageAndFilteredByMaxMissing() {
+        index.index(OWNER, recipe("all", T0, "egg", "melk"));
+        index.index(OWNER, recipe("half", T0, "egg", "ost"));
+        index.index(OWNER, recipe("third", T0, "egg", "ost", "smør"));
+
+        assertThat(index.match(OWNER, List.of("egg", "melk"), 10, null))
+                .extracting(IngredientIndex.Match::recipeId)
+                .containsExactly("all", "half", "third");
+        assertThat(index.match(OWNER, List.of("egg", "melk"), 10, 1))
+                .extracting(IngredientIndex.Match::recipeId)
+                .containsExactly("all", "half");
+        assertThat(index.match(OWNER, List.of("egg", "melk"), 1, null))
+                .extracting(IngredientIndex.Match::recipeId)
+                .containsExactly("all");
+    }
+
+    @Test
+    void matchIsScopedToOwner() {
+        index.index(OWNER, recipe("mine", T0, "egg"));
+        index.index("owner-2", recipe("theirs", T0, "egg"));
+
+        assertThat(index.match(OWNER, List.of("egg"), 10, null))
+                .extracting(IngredientIndex.Match::recipeId)
+                .containsExactly("mine");
+    }
+
+    // --------------------------------------------------
+    // Bitmap-indeksen mot et lineært søk over samme oppskrifter
+    // --------------------------------------------------
+
+    @Test
+    void bitmapMatchesLinearScanAcrossUpdatesAndRemovals() {
+        Random random = new Random(42);
+        Map<String, List<String>> recipes = new HashMap<>();
+
+        for (int i = 0; i < 300; i++) {
+            String id = "r" + i;
+            List<String> items = randomItems(random);
+            recipes.put(id, items);
+            index.index(OWNER, recipe(id, T0, items.toArray(new String[0])));
+        }
+
+        // Fjern og endre noen, så ordinaler gjenbrukes og bitmaps oppdateres
+        for (int i = 0; i < 300; i += 3) {
+            String id = "r" + i;
+            recipes.remove(id);
+            index.remove(OWNER, id);
+        }
+        for (int i = 1; i < 300; i += 5) {
+            String id = "r" + i;
+            List<String> items = randomItems(random);
+            recipes.put(id, items);
+            index.index(OWNER, recipe(id, T0.plusMinutes(1), items.toArray(new String[0])));
+        }
+        for (int i = 300; i < 340; i++) {
+            String id = "r" + i;
+            List<String> items = randomItems(random);
+            recipes.put(id, items);
+            index.index(OWNER, recipe(id, T0, items.toArray(new String[0])));
+        }
+
+        for (int q = 0; q < 200; q++) {
+            List<String> available = randomItems(random);
+            Integer maxMissing = random.nextBoolean() ? null : random.nextInt(4);
+
+            Map<String, IngredientIndex.Match> expected = linearScan(recipes, available, maxMissing);
+            List<IngredientIndex.Match> actual = index.match(OWNER, available, Integer.MAX_VALUE, maxMissing);
+
+            assertThat(actual).as("available=%s maxMissing=%s", available, maxMissing)
+                    .hasSameSizeAs(expected.values());
+            for (IngredientIndex.Match match : actual) {
+                IngredientIndex.Match want = expected.get(match.recipeId());
+                assertThat(want).as("unexpected %s for %s", match.recipeId(), available).isNotNull();
+                assertThat(match.matched()).isEqualTo(want.matched());
+                assertThat(match.total()).isEqualTo(want.total());
+                assertThat(match.missing()).containsExactlyInAnyOrderElementsOf(want.missing());
+            }
+            for (int i = 1; i < actual.size(); i++) {
+                assertThat(actual.get(i - 1).coverage()).isGreaterThanOrEqualTo(actual.get(i).coverage());
+            }
+        }
+    }
+
+    // Samme regler som IngredientIndex, uten bitmaps: hver oppskrift sjekkes mot hver tilgjengelig nøkkel
+    private static Map<String, IngredientIndex.Match> linearScan(Map<String, List<String>> recipes,
+                                                                 Collection<String> available,
+                                                                 Integer maxMissing) {
+        Set<String> staples = new HashSet<>();
+        STAPLES.forEach(s -> staples.add(IngredientIndex.key(s)));
+
+        Set<String> have = new HashSet<>();
+        for (String item : available) {
+            String key = IngredientIndex.key(item);
+            if (key != null) have.add(key);
+        }
+
+        Map<String, IngredientIndex.Match> result = new HashMap<>();
+        recipes.forEach((id, items) -> {
+            Map<String, String> keys = new LinkedHashMap<>();
+            for (String item : items) {
+                String key = IngredientIndex.key(item);
+                if (key != null && !staples.contains(key)) keys.putIfAbsent(key, item.trim());
+            }
+
+            int matched = 0;
+            List<String> missing = new ArrayList<>();
+            for (Map.Entry<String, String> e : keys.entrySet()) {
+                if (covers(have, e.getKey())) {
+                    matched++;
+                } else {
+                    missing.add(e.getValue());
+                }
+            }
+            if (matched == 0 || (maxMissing != null && missing.size() > maxMissing)) {
+                return;
+            }
+            result.put(id, new IngredientIndex.Match(id, matched, keys.size(), missing));
+        });
+        return result;
+    }
+
+    private static boolean covers(Set<String> have, String recipeKey) {
+        for (String key : have) {
+            if (key.equals(recipeKey)) return true;
+            // "løk" dekker "rød løk"
+            if (!key.contains(" ") && head(recipeKey).equals(key)) return true;
+            // "rød løk" dekker "løk"
+            if (!recipeKey.contains(" ") && head(key).equals(recipeKey)) return true;
+        }
+        return false;
+    }
+
+    private static String head(String key) {
+        return key.substring(key.lastIndexOf(' ') + 1);
+    }
+
+    private static List<String> randomItems(Random random) {
+        int count = 1 + random.nextInt(6);
+        List<String> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(VOCABULARY.get(random.nextInt(VOCABULARY.size())));
+        }
+        return items;
+    }
+
+    private static RecipeDto recipe(String id, LocalDateTime updatedAt, String... items) {
+        List<IngredientDto> ingredients = new ArrayList<>();
+        for (String item : items) {
+            ingredients.add(new IngredientDto(null, null, item, null, null));
+        }
+        return RecipeDto.builder()
+                .id(id)
+                .title(id)
+                .ingredients(ingredients)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.quant.backend.search;
+
+import com.quant.backend.dto.CursorPageDto;
+import com.quant.backend.dto.IngredientDto;
+import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.repository.OwnedRecipe;
+import com.quant.backend.repository.RecipeAdminFilter;
+import com.quant.backend.repository.RecipeDeletedEvent;
+import com.quant.backend.repository.RecipeRepository;
+import com.quant.backend.repository.RecipeSavedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecipeIndexerTest {
+
+    private static final String OWNER = "owner-1";
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private final RecipeRepository repository = mock(RecipeRepository.class);
+    private final RecipeSearchIndex searchIndex = new RecipeSearchIndex();
+    private final IngredientIndex ingredientIndex = new IngredientIndex(List.of("salt"));
+    private final RecipeIndexer indexer = new RecipeIndexer(repository, List.of(searchIndex, ingredientIndex));
+
+    @Test
+    void recipeDeletedAfterItsPageWasReadIsNotIndexed() {
+        RecipeDto ghost = recipe("ghost", "Kyllinggryte");
+        RecipeDto kept = recipe("kept", "Kyllingsuppe");
+
+        // Siden leses, så committer slettingen før rebuild() rekker å indeksere den
+        when(repository.findOwnedPageAdmin(eq(RecipeAdminFilter.NONE), any(), anyInt())).thenAnswer(invocation -> {
+            indexer.onDeleted(new RecipeDeletedEvent(OWNER, "ghost"));
+            return new CursorPageDto<>(List.of(new OwnedRecipe(OWNER, ghost), new OwnedRecipe(OWNER, kept)), null);
+        });
+
+        indexer.rebuild();
+
+        assertThat(searchIndex.search(OWNER, "kylling", 10)).containsExactly("kept");
+        assertThat(ingredientIndex.match(OWNER, List.of("kylling"), 10, null))
+                .extracting(IngredientIndex.Match::recipeId).containsExactly("kept");
+    }
+
+    @Test
+    void removalsAreForgottenAfterTheRebuild() {
+        when(repository.findOwnedPageAdmin(eq(RecipeAdminFilter.NONE), any(), anyInt())).thenAnswer(invocation -> {
+            indexer.onDeleted(new RecipeDeletedEvent(OWNER, "restored"));
+            return new CursorPageDto<>(List.of(), null);
+        });
+        indexer.rebuild();
+
+        // Samme id lagret igjen etterpå skal indekseres som vanlig
+        indexer.onSaved(new RecipeSavedEvent(OWNER, recipe("restored", "Kyllinggryte")));
+
+        assertThat(searchIndex.search(OWNER, "kylling", 10)).containsExactly("restored");
+    }
+
+    private static RecipeDto recipe(String id, String title) {
+        List<IngredientDto> ingredients = new ArrayList<>();
+        ingredients.add(new IngredientDto(null, null, "kylling", null, null));
+        return RecipeDto.builder()
+                .id(id)
+                .title(title)
+                .ingredients(ingredients)
+                .steps(new ArrayList<>())
+                .updatedAt(T0)
+                .build();
+    }
+}
@@ -0,0 +1,151 @@
+package com.quant.backend.search;
+
+import com.quant.backend.dto.IngredientDto;
+import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.dto.RecipeStepDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Grov tidsmåling: én eier med 100k oppskrifter, indeksert og søkt i minnet.
+ *
+ * Skriver tallene til stderr (se surefire-rapporten) og feiler bare ved grove regresjoner;
+ * grensene er romslige så testen tåler en treg CI-maskin. Til sammenligning måles et lineært
+ * søk over alle oppskriftene, slik klientene filtrerte før søket fantes.
+ */
+class RecipeSearchIndexBenchmarkTest {
+
+    private static final int RECIPES = 100_000;
+    private static final int QUERIES = 200;
+    // Sjeldnere ord (retter, merker, krydder ...) som gir et realistisk langt haleordforråd
+    private static final int RARE_WORDS = 5_000;
+    private static final String OWNER = "owner-1";
+
+    private static final String[] WORDS = {
+            "kylling", "laks", "torsk", "kjøttdeig", "svinekjøtt", "tofu", "egg", "ris", "pasta", "poteter",
+            "løk", "hvitløk", "gulrot", "tomat", "paprika", "brokkoli", "spinat", "sopp", "ost", "fløte",
+            "melk", "smør", "olje", "chili", "ingefær", "koriander", "persille", "basilikum", "sitron", "lime",
+            "chicken", "salmon", "beef", "pork", "beans", "lentils", "noodles", "rice", "cheese", "cream",
+            "curry", "gryte", "suppe", "salat", "wok", "taco", "pizza", "lasagne", "grateng", "paj",
+            "stew", "soup", "salad", "bake", "roast", "grill", "fry", "boil", "simmer", "serve"
+    };
+
+    private final Random random = new Random(42);
+    private final String[] rareWords = new String[RARE_WORDS];
+
+    @Test
+    void searchOver100kRecipes() {
+        for (int i = 0; i < RARE_WORDS; i++) {
+            rareWords[i] = syllables(3);
+        }
+        List<RecipeDto> recipes = new ArrayList<>(RECIPES);
+        for (int i = 0; i < RECIPES; i++) {
+            recipes.add(recipe(i));
+        }
+
+        RecipeSearchIndex index = new RecipeSearchIndex();
+        long indexStart = System.nanoTime();
+        for (RecipeDto recipe : recipes) {
+            index.index(OWNER, recipe);
+        }
+        long indexMs = (System.nanoTime() - indexStart) / 1_000_000;
+
+        List<String> queries = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            // Et vanlig og et sjeldnere ord; annenhver spørring ender midt i ordet, som når brukeren skriver
+            String last = rareWords[random.nextInt(RARE_WORDS)];
+            queries.add(WORDS[random.nextInt(WORDS.length)] + " " + (i % 2 == 0 ? last : last.substring(0, 4)));
+        }
+
+        // Oppvarming, så JIT ikke havner i målingen
+        for (String query : queries.subList(0, 50)) {
+            index.search(OWNER, query, 20);
+        }
+
+        long[] micros = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            index.search(OWNER, queries.get(i), 20);
+            micros[i] = (System.nanoTime() - start) / 1_000;
+        }
+        Arrays.sort(micros);
+        long p50 = micros[QUERIES / 2];
+        long p99 = micros[QUERIES * 99 / 100];
+
+        long scanMicros = linearScanMicros(recipes, queries.subList(0, 20));
+
+        System.err.printf(Locale.ROOT,
+                "RecipeSearchIndex benchmark: %d recipes indexed in %d ms; search p50 %.2f ms, p99 %.2f ms; "
+                        + "linear scan %.2f ms per query%n",
+                RECIPES, indexMs, p50 / 1000.0, p99 / 1000.0, scanMicros / 1000.0);
+
+        assertThat(indexMs).isLessThan(60_000);
+        assertThat(p50).isLessThan(200_000);
+    }
+
+    // Snitt per spørring for et naivt contains-filter over tittel, ingredienser og steg
+    private static long linearScanMicros(List<RecipeDto> recipes, List<String> queries) {
+        long start = System.nanoTime();
+        int matches = 0;
+        for (String query : queries) {
+            String[] terms = query.toLowerCase(Locale.ROOT).split(" ");
+            for (RecipeDto recipe : recipes) {
+                StringBuilder text = new StringBuilder(recipe.getTitle().toLowerCase(Locale.ROOT));
+                recipe.getIngredients().forEach(ing -> text.append(' ').append(ing.getItem()));
+                recipe.getSteps().forEach(step -> text.append(' ').append(step.getInstruction()));
+                boolean all = true;
+                for (String term : terms) {
+                    if (text.indexOf(term) < 0) {
+                        all = false;
+                        break;
+                    }
+                }
+                if (all) matches++;
+            }
+        }
+        return (System.nanoTime() - start) / 1_000 / queries.size();
+    }
+
+    private RecipeDto recipe(int i) {
+        List<IngredientDto> ingredients = new ArrayList<>();
+        for (int j = 0; j < 8; j++) {
+            ingredients.add(new IngredientDto(null, null, word(), null, null));
+        }
+        List<RecipeStepDto> steps = new ArrayList<>();
+        for (int j = 0; j < 4; j++) {
+            steps.add(new RecipeStepDto(j + 1, word() + " " + word() + " " + word() + " " + word(), null));
+        }
+        return RecipeDto.builder()
+                .id("r" + i)
+                .title(word() + " " + word() + " " + word())
+                .description(word() + " " + word())
+                .ingredients(ingredients)
+                .steps(steps)
+                .updatedAt(LocalDateTime.of(2025, 1, 1, 0, 0).plusSeconds(i))
+                .build();
+    }
+
+    // Halvparten fra de vanlige ordene, resten fra halen
+    private String word() {
+        return random.nextBoolean() ? WORDS[random.nextInt(WORDS.length)] : rareWords[random.nextInt(RARE_WORDS)];
+    }
+
+    private String syllables(int n) {
+        String consonants = "bdfgklmnprstv";
+        String vowels = "aeiouyæøå";
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            word.append(consonants.charAt(random.nextInt(consonants.length())));
+            word.append(vowels.charAt(random.nextInt(vowels.length())));
+        }
+        return word.toString();
+    }
+}
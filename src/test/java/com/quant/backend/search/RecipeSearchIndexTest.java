@@ -0,0 +1,158 @@
+package com.quant.backend.search;
+
+import com.quant.backend.dto.IngredientDto;
+import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.dto.RecipeStepDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecipeSearchIndexTest {
+
+    private static final String OWNER = "owner-1";
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private final RecipeSearchIndex index = new RecipeSearchIndex();
+
+    @Test
+    void titleMatchRanksAboveStepMatch() {
+        index.index(OWNER, recipe("in-steps", "Gryte", null, List.of(), List.of("Stek kylling i smør")));
+        index.index(OWNER, recipe("in-title", "Kylling i ovn", null, List.of(), List.of()));
+
+        assertThat(index.search(OWNER, "kylling", 10)).containsExactly("in-title", "in-steps");
+    }
+
+    @Test
+    void ingredientMatchRanksAboveDescriptionMatch() {
+        index.index(OWNER, recipe("in-description", "Gryte", "Passer til kylling", List.of(), List.of()));
+        index.index(OWNER, recipe("in-ingredients", "Gryte", null, List.of("kylling"), List.of()));
+
+        assertThat(index.search(OWNER, "kylling", 10)).containsExactly("in-ingredients", "in-description");
+    }
+
+    @Test
+    void recipeMatchingAllTermsRanksAboveStrongerSingleTermMatch() {
+        index.index(OWNER, recipe("one-term", "Kylling", null, List.of(), List.of()));
+        index.index(OWNER, recipe("both-terms", "Middag", "Kylling med ris", List.of(), List.of()));
+
+        assertThat(index.search(OWNER, "kylling ris", 10)).containsExactly("both-terms", "one-term");
+    }
+
+    @Test
+    void rareTermOutweighsCommonTerm() {
+        for (int i = 0; i < 5; i++) {
+            index.index(OWNER, recipe("ris-" + i, "Middag " + i, "Server med ris", List.of(), List.of()));
+        }
+        index.index(OWNER, recipe("safran", "Middag", "Smak til med safran", List.of(), List.of()));
+
+        List<String> hits = index.search(OWNER, "ris safran", 10);
+
+        assertThat(hits).hasSize(6);
+        assertThat(hits.get(0)).isEqualTo("safran");
+    }
+
+    @Test
+    void titleOutweighsRepeatedStepMentions() {
+        // Steg teller lite og metner, så fem omtaler i stegene slår ikke ett treff i tittelen
+        index.index(OWNER, recipe("title", "Tomatsuppe med basilikum", null, List.of(), List.of()));
+        index.index(OWNER, recipe("steps", "Suppe", null, List.of(),
+                List.of("basilikum", "basilikum", "basilikum", "basilikum", "basilikum")));
+
+        assertThat(index.search(OWNER, "basilikum", 10)).containsExactly("title", "steps");
+    }
+
+    @Test
+    void lastTermIsPrefixMatched() {
+        index.index(OWNER, recipe("tomat", "Tomater på toast", null, List.of(), List.of()));
+        index.index(OWNER, recipe("other", "Pannekaker", null, List.of(), List.of()));
+
+        assertThat(index.search(OWNER, "tom", 10)).containsExactly("tomat");
+        // Bare siste ord prefiks-matches
+        assertThat(index.search(OWNER, "tom toast", 10)).containsExactly("tomat");
+        assertThat(index.search(OWNER, "toast tom", 10)).containsExactly("tomat");
+    }
+
+    @Test
+    void exactMatchRanksAbovePrefixMatch() {
+        index.index(OWNER, recipe("prefix", "Løkringer", null, List.of(), List.of()));
+        index.index(OWNER, recipe("exact", "Løk", null, List.of(), List.of()));
+
+        assertThat(index.search(OWNER, "løk", 10)).containsExactly("exact", "prefix");
+    }
+
+    @Test
+    void searchIsScopedToOwner() {
+        index.index(OWNER, recipe("mine", "Kylling", null, List.of(), List.of()));
+        index.index("owner-2", recipe("theirs", "Kylling", null, List.of(), List.of()));
+
+        assertThat(index.search(OWNER, "kylling", 10)).containsExactly("mine");
+        assertThat(index.search("owner-3", "kylling", 10)).isEmpty();
+    }
+
+    @Test
+    void respectsLimit() {
+        for (int i = 0; i < 20; i++) {
+            index.index(OWNER, recipe("r" + i, "Kylling " + i, null, List.of(), List.of()));
+        }
+
+        assertThat(index.search(OWNER, "kylling", 5)).hasSize(5);
+        assertThat(index.search(OWNER, "kylling", 0)).isEmpty();
+    }
+
+    @Test
+    void queryWithOnlyStopwordsFindsNothing() {
+        index.index(OWNER, recipe("r", "Kylling og ris", null, List.of(), List.of()));
+
+        assertThat(index.search(OWNER, "og i med", 10)).isEmpty();
+        assertThat(index.search(OWNER, "   ", 10)).isEmpty();
+    }
+
+    @Test
+    void reindexReplacesOldTermsAndRemoveDropsRecipe() {
+        index.index(OWNER, recipe("r", "Kylling", null, List.of(), List.of()));
+        index.index(OWNER, recipe("r", "Laks", null, List.of(), List.of(), T0.plusMinutes(1)));
+
+        assertThat(index.search(OWNER, "kylling", 10)).isEmpty();
+        assertThat(index.search(OWNER, "laks", 10)).containsExactly("r");
+
+        index.remove(OWNER, "r");
+        assertThat(index.search(OWNER, "laks", 10)).isEmpty();
+    }
+
+    @Test
+    void olderVersionDoesNotOverwriteNewer() {
+        index.index(OWNER, recipe("r", "Laks", null, List.of(), List.of(), T0.plusMinutes(1)));
+        // F.eks. gjenoppbyggingen som leste raden før lagringen
+        index.index(OWNER, recipe("r", "Kylling", null, List.of(), List.of(), T0));
+
+        assertThat(index.search(OWNER, "laks", 10)).containsExactly("r");
+        assertThat(index.search(OWNER, "kylling", 10)).isEmpty();
+    }
+
+    private static RecipeDto recipe(String id, String title, String description,
+                                    List<String> ingredients, List<String> steps) {
+        return recipe(id, title, description, ingredients, steps, T0);
+    }
+
+    private static RecipeDto recipe(String id, String title, String description,
+                                    List<String> ingredients, List<String> steps, LocalDateTime updatedAt) {
+        List<RecipeStepDto> stepDtos = new ArrayList<>();
+        for (int i = 0; i < steps.size(); i++) {
+            stepDtos.add(new RecipeStepDto(i + 1, steps.get(i), null));
+        }
+        return RecipeDto.builder()
+                .id(id)
+                .title(title)
+                .description(description)
+                .ingredients(ingredients.stream()
+                        .map(item -> new IngredientDto(null, null, item, null, null))
+                        .toList())
+                .steps(stepDtos)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
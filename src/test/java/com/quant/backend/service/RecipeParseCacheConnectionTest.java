@@ -0,0 +1,62 @@
+package com.quant.backend.service;
+
+import com.quant.backend.ai.ClaudeClient;
+import com.quant.backend.auth.JwtService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Synkron import slår opp i parse-cachen før Claude-kallet (5–60 s). Oppslaget skal ikke holde på en
+ * pool-connection mens modellen svarer; med én connection i poolen ville alle andre requester feilet.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:parse_cache_connection;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.hikari.maximum-pool-size=1"
+})
+@AutoConfigureMockMvc
+class RecipeParseCacheConnectionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private HikariDataSource dataSource;
+
+    @MockBean
+    private ClaudeClient claudeClient;
+
+    @Test
+    void connectionIsReturnedBeforeTheClaudeCall() throws Exception {
+        AtomicInteger activeDuringCall = new AtomicInteger(-1);
+        when(claudeClient.complete(anyString())).thenAnswer(invocation -> {
+            activeDuringCall.set(dataSource.getHikariPoolMXBean().getActiveConnections());
+            return "{\"title\":\"Pannekaker\"}";
+        });
+
+        mockMvc.perform(post("/api/recipes/import-text")
+                        .header("Authorization", "Bearer " + jwtService.createToken("u1", "u1@x.no"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"text\":\"Pannekaker: 3 egg, 5 dl melk\"}"))
+                .andExpect(status().isOk());
+
+        assertThat(activeDuringCall.get()).isZero();
+    }
+}
@@ -0,0 +1,111 @@
+package com.quant.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quant.backend.auth.AdminAccess;
+import com.quant.backend.auth.QuantPrincipal;
+import com.quant.backend.auth.UserJpaRepository;
+import com.quant.backend.dto.RecipeChangesDto;
+import com.quant.backend.dto.RecipeDto;
+import com.quant.backend.dto.RecipeTombstoneDto;
+import com.quant.backend.repository.RecipeChangesCursor;
+import com.quant.backend.repository.RecipeCursor;
+import com.quant.backend.repository.RecipeRepository;
+import com.quant.backend.repository.RecipeShareJpaRepository;
+import com.quant.backend.search.IngredientIndex;
+import com.quant.backend.search.RecipeSearchIndex;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Neste markør i delta-synken: en tom eller uttømt strøm skal ikke hoppe frem til serverTime,
+ * ellers blir en lagring som committer etter spørringen (med et tidligere tidsstempel) aldri sendt.
+ */
+class RecipeServiceChangesTest {
+
+    private static final String OWNER = "owner-1";
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 3, 1, 12, 0);
+    private static final RecipeCursor FROM_START = new RecipeCursor(LocalDateTime.of(1970, 1, 1, 0, 0), "");
+
+    private final RecipeRepository repository = mock(RecipeRepository.class);
+    private RecipeService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RecipeService(repository, mock(RecipeParserService.class), mock(AdminAccess.class),
+                mock(UserJpaRepository.class), mock(RecipeShareJpaRepository.class), mock(RecipeViewBuffer.class),
+                mock(RecipeSearchIndex.class), mock(IngredientIndex.class), new ObjectMapper(), mock(Validator.class));
+        ReflectionTestUtils.setField(service, "tombstoneRetentionDays", 30);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(new QuantPrincipal(OWNER, "owner@x.no"), null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void exhaustedStreamContinuesAfterLastRowNotFromServerTime() {
+        RecipeDto seen = recipe("a", T0);
+        when(repository.findChangedAfterForUser(eq(OWNER), eq(FROM_START), anyInt())).thenReturn(List.of(seen));
+        when(repository.findTombstonesAfterForUser(eq(OWNER), eq(FROM_START), anyInt())).thenReturn(List.of());
+
+        RecipeChangesCursor next = RecipeChangesCursor.decode(service.getChangesSince(null, null, 50).getNextCursor());
+
+        assertThat(next.upserts()).isEqualTo(new RecipeCursor(T0, "a"));
+        // Ingen slettinger: posisjonen står stille
+        assertThat(next.deletes()).isEqualTo(FROM_START);
+
+        // En lagring stemplet T0+1s som committet etter første kall kommer med i neste
+        RecipeDto late = recipe("b", T0.plusSeconds(1));
+        when(repository.findChangedAfterForUser(eq(OWNER), eq(new RecipeCursor(T0, "a")), anyInt())).thenReturn(List.of(late));
+
+        RecipeChangesDto second = service.getChangesSince(null, next.encode(), 50);
+
+        assertThat(second.getUpserted()).extracting(RecipeDto::getId).containsExactly("b");
+        assertThat(second.isFullResyncRequired()).isFalse();
+    }
+
+    @Test
+    void fullResyncFollowsLastSyncNotAnIdleStreamPosition() {
+        // Slettestrømmen har stått stille på 1970, men klienten synket for en time siden
+        RecipeChangesCursor recent = new RecipeChangesCursor(
+                new RecipeCursor(T0, "a"), FROM_START, LocalDateTime.now().minusHours(1));
+        RecipeChangesCursor stale = new RecipeChangesCursor(
+                new RecipeCursor(T0, "a"), FROM_START, LocalDateTime.now().minusDays(31));
+        when(repository.findChangedAfterForUser(eq(OWNER), eq(new RecipeCursor(T0, "a")), anyInt())).thenReturn(List.of());
+        when(repository.findTombstonesAfterForUser(eq(OWNER), eq(FROM_START), anyInt())).thenReturn(List.of());
+
+        assertThat(service.getChangesSince(null, recent.encode(), 50).isFullResyncRequired()).isFalse();
+        assertThat(service.getChangesSince(null, stale.encode(), 50).isFullResyncRequired()).isTrue();
+    }
+
+    @Test
+    void legacySinceMovesPastAnIdleStream() {
+        RecipeCursor since = new RecipeCursor(T0, "");
+        when(repository.findChangedAfterForUser(eq(OWNER), eq(since), anyInt()))
+                .thenReturn(List.of(recipe("a", T0.plusMinutes(5))));
+        when(repository.findTombstonesAfterForUser(eq(OWNER), eq(since), anyInt()))
+                .thenReturn(List.of(new RecipeTombstoneDto("d", T0.plusMinutes(1))));
+
+        assertThat(service.getChangesSince(T0, null, 50).getNextSince()).isEqualTo(T0.plusMinutes(5));
+    }
+
+    private static RecipeDto recipe(String id, LocalDateTime updatedAt) {
+        return RecipeDto.builder().id(id).title(id).updatedAt(updatedAt).build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.quant.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RecipeViewBufferTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RecipeViewBuffer buffer =
+            new RecipeViewBuffer(jdbcTemplate, meterRegistry, mock(ApplicationEventPublisher.class), 1);
+
+    @Test
+    void fullBufferDropsTheViewAndFlushesInTheBackground() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new int[0][];
+        });
+
+        assertThat(buffer.record("owner-1", "a", NOW).count()).isEqualTo(1);
+
+        // Bufferet er fullt og databasen henger: requesten skal likevel ikke vente
+        RecipeViewBuffer.PendingSnapshot dropped = CompletableFuture
+                .supplyAsync(() -> buffer.record("owner-1", "b", NOW))
+                .get(1, TimeUnit.SECONDS);
+
+        assertThat(dropped.count()).isZero();
+        assertThat(dropped.lastViewedAt()).isNull();
+        assertThat(meterRegistry.counter("quant.recipe.views.dropped").count()).isEqualTo(1);
+
+        // Den tidlige flushen kjører på en egen tråd
+        verify(jdbcTemplate, timeout(1000)).batchUpdate(anyString(), anyList(), anyInt(), any());
+        release.countDown();
+    }
+
+    @Test
+    void viewsOfAPendingRecipeAreStillCountedWhenFull() {
+        buffer.record("owner-1", "a", NOW);
+
+        assertThat(buffer.record("owner-1", "a", NOW.plusSeconds(1)).count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("quant.recipe.views.dropped").count()).isZero();
+    }
+}